@@ -0,0 +1,28 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyzing all class files of the project, without the analysis cache
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzeCoverageBenchmark {
+    @Benchmark
+    public IBundleCoverage analyzeCoverage(ProjectState state) throws IOException {
+        return state.mojo.analyzeCoverage(state.executionDataStore, state.classFiles);
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.svaningelgem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking the classes of a generated project against a growing number of JaCoCo and Sonar exclusion patterns
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExclusionBenchmark {
+    private static final int CLASS_COUNT = 1000;
+
+    @Param({"10", "100", "1000"})
+    public int patternCount;
+
+    private File directory;
+    private JacocoConsoleReporterMojo mojo;
+    private final List<String> classNames = new ArrayList<>();
+    private final List<String> filePaths = new ArrayList<>();
+    private final List<SonarExclusionPattern> sonarPatterns = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("jacoco-console-reporter-benchmark").toFile();
+        SyntheticProjectGenerator generator = ProjectState.generator(CLASS_COUNT);
+        generator.setExclusionCount(patternCount);
+        SyntheticProject project = generator.generate(directory);
+
+        mojo = ProjectState.createMojo();
+        for (String className : project.getClassNames()) {
+            classNames.add(className);
+            filePaths.add("src/main/java/" + className + ".java");
+        }
+        for (String jacocoExclude : project.getJacocoExcludes()) {
+            mojo.addExclusion(jacocoExclude);
+        }
+        for (String sonarExclusion : project.getSonarExclusions()) {
+            SonarExclusionPattern pattern = new SonarExclusionPattern(sonarExclusion, mojo.project);
+            sonarPatterns.add(pattern);
+            JacocoConsoleReporterMojo.collectedSonarExcludePatterns.add(pattern);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ProjectState.clearCollected();
+        ProjectState.delete(directory);
+    }
+
+    @Benchmark
+    public int isExcluded() {
+        int excluded = 0;
+        for (int i = 0; i < classNames.size(); i++) {
+            if (mojo.isExcluded(classNames.get(i), filePaths.get(i))) {
+                excluded++;
+            }
+        }
+        return excluded;
+    }
+
+    @Benchmark
+    public int sonarExclusionPatternMatches() {
+        int excluded = 0;
+        for (String filePath : filePaths) {
+            for (SonarExclusionPattern pattern : sonarPatterns) {
+                if (pattern.matches(filePath, mojo.project)) {
+                    excluded++;
+                    break;
+                }
+            }
+        }
+        return excluded;
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.data.ExecutionDataStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and merging the exec files of four test runs
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionDataMergerBenchmark {
+    @Benchmark
+    public ExecutionDataStore loadExecutionData(ProjectState state) throws IOException {
+        return new ExecutionDataMerger().loadExecutionData(state.execFiles);
+    }
+
+    @Benchmark
+    public ExecutionDataStore loadExecutionDataSingleThreaded(ProjectState state) throws IOException {
+        return new ExecutionDataMerger(1).loadExecutionData(state.execFiles);
+    }
+}
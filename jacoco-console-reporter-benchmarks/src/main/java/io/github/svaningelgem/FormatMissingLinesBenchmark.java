@@ -0,0 +1,51 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.analysis.ICounter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting the missing lines of a single source file
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatMissingLinesBenchmark {
+    private static final int[] STATUSES = {ICounter.EMPTY, ICounter.NOT_COVERED, ICounter.FULLY_COVERED, ICounter.PARTLY_COVERED};
+
+    @Param({"100", "1000", "10000"})
+    public int lineCount;
+
+    private int[] lineStatus;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(ProjectState.SEED);
+        lineStatus = new int[lineCount + 1];
+        for (int i = 1; i <= lineCount; i++) {
+            // Runs of the same status, as in real files
+            lineStatus[i] = random.nextInt(4) == 0 ? STATUSES[random.nextInt(STATUSES.length)] : lineStatus[i - 1];
+        }
+    }
+
+    @Benchmark
+    public String formatMissingLines() {
+        return JacocoConsoleReporterMojo.formatMissingLines(1, lineCount, i -> lineStatus[i]);
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.svaningelgem;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A synthetic project per size, with a mojo that reports on it.
+ * Everything a benchmark doesn't measure is prepared here, once per trial.
+ */
+@State(Scope.Benchmark)
+public class ProjectState {
+    static final long SEED = 42;
+    static final int CLASSES_PER_PACKAGE = 20;
+
+    @Param({"100", "1000", "10000"})
+    public int classCount;
+
+    File directory;
+    SyntheticProject project;
+    Set<File> execFiles;
+    JacocoConsoleReporterMojo mojo;
+    List<ClassFile> classFiles;
+    ExecutionDataStore executionDataStore;
+    IBundleCoverage bundle;
+    DirectoryNode tree;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("jacoco-console-reporter-benchmark").toFile();
+        project = generator(classCount).generate(directory);
+        execFiles = new HashSet<>(project.getExecFiles());
+
+        mojo = createMojo();
+        classFiles = mojo.collectClassFiles(Collections.singletonList(project.getClassesDirectory()));
+        executionDataStore = new ExecutionDataMerger().loadExecutionData(execFiles);
+        bundle = mojo.analyzeCoverage(executionDataStore, classFiles);
+        tree = mojo.buildDirectoryTree(bundle);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        clearCollected();
+        delete(directory);
+    }
+
+    static void delete(@NotNull File directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /**
+     * A generator for projects of the given size, in packages of {@value #CLASSES_PER_PACKAGE} classes, with four test runs
+     */
+    static @NotNull SyntheticProjectGenerator generator(int classCount) {
+        SyntheticProjectGenerator generator = new SyntheticProjectGenerator(SEED);
+        generator.setPackageCount(Math.max(classCount / CLASSES_PER_PACKAGE, 1));
+        generator.setClassesPerPackage(Math.min(classCount, CLASSES_PER_PACKAGE));
+        generator.setExecFileCount(4);
+        generator.setHitRatio(0.3);
+        return generator;
+    }
+
+    /**
+     * A mojo configured as in a build that shows the whole tree, without the caches that would skip the work
+     */
+    static @NotNull JacocoConsoleReporterMojo createMojo() {
+        JacocoConsoleReporterMojo mojo = new JacocoConsoleReporterMojo();
+        mojo.setLog(new NullLog());
+        mojo.project = new MavenProject();
+        mojo.showTree = true;
+        mojo.showFiles = true;
+        mojo.showMissingLines = true;
+        mojo.showSummary = true;
+        return mojo;
+    }
+
+    /**
+     * The collected state of the mojo is static, as it spans the modules of a build
+     */
+    static void clearCollected() {
+        JacocoConsoleReporterMojo.collectedClassesPaths.clear();
+        JacocoConsoleReporterMojo.collectedArchivePaths.clear();
+        JacocoConsoleReporterMojo.collectedExecFilePaths.clear();
+        JacocoConsoleReporterMojo.collectedExcludePatterns.clear();
+        JacocoConsoleReporterMojo.collectedSonarExcludePatterns.clear();
+    }
+
+    /**
+     * Drops all output, so the benchmarks measure the formatting and not the console
+     */
+    static class NullLog implements Log {
+        @Override
+        public boolean isDebugEnabled() {
+            return false;
+        }
+
+        @Override
+        public void debug(CharSequence content) {
+        }
+
+        @Override
+        public void debug(CharSequence content, Throwable error) {
+        }
+
+        @Override
+        public void debug(Throwable error) {
+        }
+
+        @Override
+        public boolean isInfoEnabled() {
+            return false;
+        }
+
+        @Override
+        public void info(CharSequence content) {
+        }
+
+        @Override
+        public void info(CharSequence content, Throwable error) {
+        }
+
+        @Override
+        public void info(Throwable error) {
+        }
+
+        @Override
+        public boolean isWarnEnabled() {
+            return false;
+        }
+
+        @Override
+        public void warn(CharSequence content) {
+        }
+
+        @Override
+        public void warn(CharSequence content, Throwable error) {
+        }
+
+        @Override
+        public void warn(Throwable error) {
+        }
+
+        @Override
+        public boolean isErrorEnabled() {
+            return false;
+        }
+
+        @Override
+        public void error(CharSequence content) {
+        }
+
+        @Override
+        public void error(CharSequence content, Throwable error) {
+        }
+
+        @Override
+        public void error(Throwable error) {
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.svaningelgem;
+
+import lombok.Data;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A project written by {@link SyntheticProjectGenerator}, laid out as a Maven module after "mvn verify".
+ */
+@Data
+public class SyntheticProject {
+    /**
+     * The module directory
+     */
+    private final File baseDirectory;
+
+    /**
+     * VM names of all classes, e.g. "com/example/module0/package3/Class7"
+     */
+    private final List<String> classNames = new ArrayList<>();
+
+    /**
+     * VM names of the classes whose source is in the build directory
+     */
+    private final List<String> generatedClassNames = new ArrayList<>();
+
+    /**
+     * The exec files, one per test run
+     */
+    private final List<File> execFiles = new ArrayList<>();
+
+    /**
+     * JaCoCo exclude patterns, as in the "excludes" of the jacoco-maven-plugin
+     */
+    private final List<String> jacocoExcludes = new ArrayList<>();
+
+    /**
+     * Sonar exclusion patterns, as in "sonar.exclusions"
+     */
+    private final List<String> sonarExclusions = new ArrayList<>();
+
+    public @NotNull File getBuildDirectory() {
+        return new File(baseDirectory, "target");
+    }
+
+    public @NotNull File getClassesDirectory() {
+        return new File(getBuildDirectory(), "classes");
+    }
+
+    public @NotNull File getSourceDirectory() {
+        return new File(baseDirectory, "src/main/java");
+    }
+
+    public @NotNull File getGeneratedSourceDirectory() {
+        return new File(getBuildDirectory(), "generated-sources/synthetic");
+    }
+}
@@ -0,0 +1,274 @@
+package io.github.svaningelgem;
+
+import lombok.Data;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.flow.ClassProbesVisitor;
+import org.jacoco.core.internal.flow.MethodProbesVisitor;
+import org.jetbrains.annotations.NotNull;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a project of any size to test and benchmark the reporter at scale.
+ * <p>
+ * Every class has a constructor and {@link #methodsPerClass} methods with a single branch, and a source file whose
+ * lines match the line numbers in the bytecode. A part of the sources is written to the build directory, as generated
+ * code. The exec files hold a probe array for every class, with each probe hit at {@link #hitRatio}.
+ * <p>
+ * Everything is derived from the seed: the same settings always give the same files.
+ */
+@Data
+public class SyntheticProjectGenerator {
+    private static final int LINES_PER_METHOD = 6;
+    private static final int FIRST_METHOD_LINE = 4;
+
+    private final long seed;
+
+    private int packageCount = 10;
+    private int classesPerPackage = 20;
+    private int methodsPerClass = 8;
+
+    /**
+     * Number of exec files, as written by separate test runs
+     */
+    private int execFileCount = 1;
+
+    /**
+     * Fraction of the probes that is hit in every exec file
+     */
+    private double hitRatio = 0.5;
+
+    /**
+     * Fraction of the classes whose source is in the build directory
+     */
+    private double generatedRatio = 0.1;
+
+    /**
+     * Number of JaCoCo exclude patterns, and of Sonar exclusion patterns. Only a few of them match a class.
+     */
+    private int exclusionCount = 0;
+
+    /**
+     * Writes the project
+     *
+     * @param baseDirectory The module directory; existing files are overwritten
+     */
+    public @NotNull SyntheticProject generate(@NotNull File baseDirectory) throws IOException {
+        SyntheticProject project = new SyntheticProject(baseDirectory);
+        Random random = new Random(seed);
+
+        List<byte[]> classBytes = new ArrayList<>();
+        for (int p = 0; p < packageCount; p++) {
+            String packageName = "com/example/module" + p / 10 + "/package" + p;
+            for (int c = 0; c < classesPerPackage; c++) {
+                String className = packageName + "/Class" + c;
+                boolean generated = random.nextDouble() < generatedRatio;
+
+                byte[] bytes = generateClass(className);
+                write(project.getClassesDirectory().toPath().resolve(className + ".class"), bytes);
+                File sourceDirectory = generated ? project.getGeneratedSourceDirectory() : project.getSourceDirectory();
+                write(sourceDirectory.toPath().resolve(className + ".java"), generateSource(className).getBytes(StandardCharsets.UTF_8));
+
+                project.getClassNames().add(className);
+                if (generated) {
+                    project.getGeneratedClassNames().add(className);
+                }
+                classBytes.add(bytes);
+            }
+        }
+
+        for (int e = 0; e < execFileCount; e++) {
+            File execFile = new File(project.getBuildDirectory(), e == 0 ? "jacoco.exec" : "jacoco-" + e + ".exec");
+            writeExecFile(execFile, "run-" + e, project.getClassNames(), classBytes, random);
+            project.getExecFiles().add(execFile);
+        }
+
+        generateExclusions(project, random);
+        return project;
+    }
+
+    private void writeExecFile(@NotNull File execFile, @NotNull String sessionId, @NotNull List<String> classNames,
+                               @NotNull List<byte[]> classBytes, @NotNull Random random) throws IOException {
+        Files.createDirectories(execFile.getParentFile().toPath());
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(execFile))) {
+            ExecutionDataWriter writer = new ExecutionDataWriter(out);
+            writer.visitSessionInfo(new SessionInfo(sessionId, 0, 0));
+            for (int i = 0; i < classNames.size(); i++) {
+                boolean[] probes = new boolean[countProbes(classBytes.get(i))];
+                for (int p = 0; p < probes.length; p++) {
+                    probes[p] = random.nextDouble() < hitRatio;
+                }
+                writer.visitClassExecution(new ExecutionData(CRC64.classId(classBytes.get(i)), classNames.get(i), probes));
+            }
+        }
+    }
+
+    /**
+     * Adds the kinds of patterns found in real builds: single classes, whole packages and name wildcards.
+     * The single classes exist, the packages and names mostly don't.
+     */
+    private void generateExclusions(@NotNull SyntheticProject project, @NotNull Random random) {
+        List<String> classNames = project.getClassNames();
+        for (int i = 0; i < exclusionCount; i++) {
+            String className = classNames.isEmpty() ? "com/example/Missing" : classNames.get(random.nextInt(classNames.size()));
+            switch (i % 4) {
+                case 0:
+                    project.getJacocoExcludes().add(className + ".class");
+                    break;
+                case 1:
+                    project.getJacocoExcludes().add("com/example/legacy" + i + "/**/*");
+                    break;
+                case 2:
+                    project.getJacocoExcludes().add("**/*Dto" + i + "*");
+                    break;
+                default:
+                    project.getJacocoExcludes().add(className + "*");
+                    break;
+            }
+
+            switch (i % 3) {
+                case 0:
+                    project.getSonarExclusions().add("**/legacy" + i + "/**");
+                    break;
+                case 1:
+                    project.getSonarExclusions().add("src/main/java/" + className + ".java");
+                    break;
+                default:
+                    project.getSonarExclusions().add("**/*Mapper" + i + ".java");
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Generates a class with methods of the form {@code int mN(int x) { if (x > 0) { return x + 1; } return 0; }}
+     */
+    byte[] generateClass(@NotNull String className) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, className, null, "java/lang/Object", null);
+        writer.visitSource(simpleName(className) + ".java", null);
+
+        MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        lineNumber(constructor, FIRST_METHOD_LINE - 1);
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        for (int m = 0; m < methodsPerClass; m++) {
+            int line = FIRST_METHOD_LINE + m * LINES_PER_METHOD;
+            MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, "m" + m, "(I)I", null, null);
+            method.visitCode();
+            Label otherwise = new Label();
+            lineNumber(method, line + 1);
+            method.visitVarInsn(Opcodes.ILOAD, 1);
+            method.visitJumpInsn(Opcodes.IFLE, otherwise);
+            lineNumber(method, line + 2);
+            method.visitVarInsn(Opcodes.ILOAD, 1);
+            method.visitInsn(Opcodes.ICONST_1);
+            method.visitInsn(Opcodes.IADD);
+            method.visitInsn(Opcodes.IRETURN);
+            method.visitLabel(otherwise);
+            lineNumber(method, line + 4);
+            method.visitInsn(Opcodes.ICONST_0);
+            method.visitInsn(Opcodes.IRETURN);
+            method.visitMaxs(0, 0);
+            method.visitEnd();
+        }
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * Generates the source of {@link #generateClass}, line for line
+     */
+    @NotNull String generateSource(@NotNull String className) {
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(className.substring(0, className.lastIndexOf('/')).replace('/', '.')).append(";\n")
+                .append("\n")
+                .append("public class ").append(simpleName(className)).append(" {\n");
+        for (int m = 0; m < methodsPerClass; m++) {
+            source.append("    public int m").append(m).append("(int x) {\n")
+                    .append("        if (x > 0) {\n")
+                    .append("            return x + 1;\n")
+                    .append("        }\n")
+                    .append("        return 0;\n")
+                    .append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private static @NotNull String simpleName(@NotNull String className) {
+        return className.substring(className.lastIndexOf('/') + 1);
+    }
+
+    private static void lineNumber(@NotNull MethodVisitor method, int line) {
+        Label label = new Label();
+        method.visitLabel(label);
+        method.visitLineNumber(line, label);
+    }
+
+    private static void write(@NotNull Path path, byte[] bytes) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.write(path, bytes);
+    }
+
+    /**
+     * Number of probes JaCoCo puts in the class, which is the size of its probe array in the exec files
+     */
+    static int countProbes(byte[] classBytes) {
+        int[] count = new int[1];
+        ClassProbesVisitor counter = new ClassProbesVisitor() {
+            @Override
+            public MethodProbesVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                return null;
+            }
+
+            @Override
+            public void visitTotalProbeCount(int total) {
+                count[0] = total;
+            }
+        };
+        new ClassReader(classBytes).accept(new ClassProbesAdapter(counter, false), 0);
+        return count[0];
+    }
+
+    /**
+     * Generates a project from the command line: {@code <directory> <packages> <classes per package> [seed]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: SyntheticProjectGenerator <directory> <packages> <classes per package> [seed]");
+            System.exit(1);
+        }
+
+        SyntheticProjectGenerator generator = new SyntheticProjectGenerator(args.length > 3 ? Long.parseLong(args[3]) : 0);
+        generator.setPackageCount(Integer.parseInt(args[1]));
+        generator.setClassesPerPackage(Integer.parseInt(args[2]));
+        SyntheticProject project = generator.generate(new File(args[0]));
+        System.out.println("Generated " + project.getClassNames().size() + " classes in " + project.getBaseDirectory().getAbsolutePath());
+    }
+}
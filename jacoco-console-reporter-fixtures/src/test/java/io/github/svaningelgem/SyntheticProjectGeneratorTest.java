@@ -0,0 +1,131 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.tools.ExecFileLoader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SyntheticProjectGeneratorTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private SyntheticProjectGenerator generator(long seed) {
+        SyntheticProjectGenerator generator = new SyntheticProjectGenerator(seed);
+        generator.setPackageCount(3);
+        generator.setClassesPerPackage(5);
+        generator.setMethodsPerClass(4);
+        generator.setExecFileCount(2);
+        generator.setGeneratedRatio(0.3);
+        generator.setExclusionCount(12);
+        return generator;
+    }
+
+    private CoverageBuilder analyze(SyntheticProject project) throws IOException {
+        ExecFileLoader loader = new ExecFileLoader();
+        for (File execFile : project.getExecFiles()) {
+            loader.load(execFile);
+        }
+
+        CoverageBuilder coverageBuilder = new CoverageBuilder();
+        new Analyzer(loader.getExecutionDataStore(), coverageBuilder).analyzeAll(project.getClassesDirectory());
+        return coverageBuilder;
+    }
+
+    @Test
+    public void testLayout() throws IOException {
+        SyntheticProject project = generator(1).generate(temporaryFolder.getRoot());
+
+        assertEquals(15, project.getClassNames().size());
+        assertEquals(2, project.getExecFiles().size());
+        assertTrue(new File(project.getBuildDirectory(), "jacoco.exec").isFile());
+        assertEquals(12, project.getJacocoExcludes().size());
+        assertEquals(12, project.getSonarExclusions().size());
+
+        for (String className : project.getClassNames()) {
+            assertTrue(new File(project.getClassesDirectory(), className + ".class").isFile());
+            boolean generated = project.getGeneratedClassNames().contains(className);
+            assertEquals(generated, new File(project.getGeneratedSourceDirectory(), className + ".java").isFile());
+            assertEquals(!generated, new File(project.getSourceDirectory(), className + ".java").isFile());
+        }
+        assertFalse(project.getGeneratedClassNames().isEmpty());
+    }
+
+    @Test
+    public void testSameSeedGivesSameProject() throws IOException {
+        SyntheticProject first = generator(7).generate(temporaryFolder.newFolder("first"));
+        SyntheticProject second = generator(7).generate(temporaryFolder.newFolder("second"));
+
+        assertEquals(first.getGeneratedClassNames(), second.getGeneratedClassNames());
+        assertEquals(first.getJacocoExcludes(), second.getJacocoExcludes());
+        assertEquals(first.getSonarExclusions(), second.getSonarExclusions());
+        for (int i = 0; i < first.getExecFiles().size(); i++) {
+            assertArrayEquals(Files.readAllBytes(first.getExecFiles().get(i).toPath()), Files.readAllBytes(second.getExecFiles().get(i).toPath()));
+        }
+    }
+
+    @Test
+    public void testOtherSeedGivesOtherProbes() throws IOException {
+        SyntheticProject first = generator(7).generate(temporaryFolder.newFolder("first"));
+        SyntheticProject second = generator(8).generate(temporaryFolder.newFolder("second"));
+
+        assertFalse(Arrays.equals(Files.readAllBytes(first.getExecFiles().get(0).toPath()), Files.readAllBytes(second.getExecFiles().get(0).toPath())));
+    }
+
+    @Test
+    public void testExecFilesMatchTheClasses() throws IOException {
+        SyntheticProject project = generator(1).generate(temporaryFolder.getRoot());
+
+        CoverageBuilder coverageBuilder = analyze(project);
+        assertEquals(15, coverageBuilder.getClasses().size());
+        assertTrue(coverageBuilder.getNoMatchClasses().isEmpty());
+        for (IClassCoverage classCoverage : coverageBuilder.getClasses()) {
+            // The constructor and every method
+            assertEquals(5, classCoverage.getMethodCounter().getTotalCount());
+            assertEquals(8, classCoverage.getBranchCounter().getTotalCount());
+            assertEquals(13, classCoverage.getLineCounter().getTotalCount());
+            assertEquals("Class", classCoverage.getSourceFileName().substring(0, 5));
+        }
+    }
+
+    @Test
+    public void testHitRatio() throws IOException {
+        SyntheticProjectGenerator generator = generator(1);
+        generator.setExecFileCount(1);
+
+        generator.setHitRatio(0);
+        ICounter none = analyze(generator.generate(temporaryFolder.newFolder("none"))).getBundle("none").getInstructionCounter();
+        assertEquals(0, none.getCoveredCount());
+
+        generator.setHitRatio(1);
+        ICounter all = analyze(generator.generate(temporaryFolder.newFolder("all"))).getBundle("all").getInstructionCounter();
+        assertEquals(0, all.getMissedCount());
+    }
+
+    @Test
+    public void testSourceMatchesTheLineNumbers() throws IOException {
+        SyntheticProject project = generator(1).generate(temporaryFolder.getRoot());
+        String className = project.getClassNames().get(0);
+        File sourceDirectory = project.getGeneratedClassNames().contains(className) ? project.getGeneratedSourceDirectory() : project.getSourceDirectory();
+
+        String[] lines = new String(Files.readAllBytes(new File(sourceDirectory, className + ".java").toPath()), "UTF-8").split("\n");
+        assertEquals("package com.example.module0.package0;", lines[0]);
+        assertEquals("public class Class0 {", lines[2]);
+        assertEquals("        if (x > 0) {", lines[4]);
+        assertEquals("            return x + 1;", lines[5]);
+        assertEquals("        return 0;", lines[7]);
+    }
+}
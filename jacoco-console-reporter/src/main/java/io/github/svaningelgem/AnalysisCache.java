@@ -0,0 +1,260 @@
+package io.github.svaningelgem;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.maven.plugin.logging.Log;
+import org.jacoco.core.JaCoCo;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.data.CRC64;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent cache of class analysis results.
+ * <p>
+ * An entry is keyed by the class id (the CRC64 of the class bytes) and a hash of the probes the execution data holds
+ * for that class. When both are unchanged since the previous build, the stored coverage is restored and the class
+ * does not have to be analyzed again. The JaCoCo version is part of the file header, as a different version may
+ * analyze the same bytes differently.
+ * <p>
+ * Entries taken over from another cache that were recorded for other execution data are held next to the existing
+ * ones; a lookup uses whichever matches the execution data of this run.
+ * <p>
+ * Lookups and updates are thread-safe, so the analysis workers can use the cache concurrently.
+ */
+public class AnalysisCache {
+    static final int MAGIC = 0x4A435243;
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * Probe hash used for classes without execution data
+     */
+    static final long NO_PROBES = 0L;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> alternatives = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger unexecutedHits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private boolean reuseForUnexecutedClasses;
+
+    /**
+     * Loads the cache from disk, see {@link StateFile}. A cache of another JaCoCo version is ignored as well.
+     */
+    static @NotNull AnalysisCache load(@NotNull File file, @NotNull Log log) {
+        AnalysisCache cache = StateFile.read(file, MAGIC, FORMAT_VERSION, "analysis cache", log, in -> {
+            if (!JaCoCo.VERSION.equals(in.readUTF())) {
+                log.debug("Ignoring analysis cache from another version: " + file);
+                return null;
+            }
+
+            AnalysisCache loaded = new AnalysisCache();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long classId = in.readLong();
+                long probeHash = in.readLong();
+                String className = in.readBoolean() ? in.readUTF() : null;
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                loaded.entries.put(classId, new Entry(probeHash, className, data));
+            }
+            return loaded;
+        });
+        return cache == null ? new AnalysisCache() : cache;
+    }
+
+    /**
+     * Writes all entries that were used during this run. Entries of classes that disappeared are dropped.
+     */
+    void save(@NotNull File file) throws IOException {
+        StateFile.write(file, MAGIC, FORMAT_VERSION, out -> {
+            out.writeUTF(JaCoCo.VERSION);
+
+            long used = entries.values().stream().filter(entry -> entry.used).count();
+            out.writeInt((int) used);
+            for (Map.Entry<Long, Entry> mapEntry : entries.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                if (!entry.used) {
+                    continue;
+                }
+
+                out.writeLong(mapEntry.getKey());
+                out.writeLong(entry.probeHash);
+                out.writeBoolean(entry.className != null);
+                if (entry.className != null) {
+                    out.writeUTF(entry.className);
+                }
+                out.writeInt(entry.data.length);
+                out.write(entry.data);
+            }
+        });
+    }
+
+    /**
+     * Restores the analysis result of a class, if it was cached for the same execution data.
+     *
+     * @param classId            CRC64 of the class bytes
+     * @param executionDataStore The execution data of this run
+     * @return Fresh coverage nodes, or null when the class has to be analyzed
+     */
+    @Nullable List<IClassCoverage> get(long classId, @NotNull ExecutionDataStore executionDataStore) {
+        ExecutionData data = executionDataStore.get(classId);
+        Entry entry = select(classId, probeHash(data));
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        // A class without execution data can reuse the result recorded for any execution data, see ClassCoverageCodec
+        boolean unexecuted = data == null && entry.probeHash != NO_PROBES;
+        if (entry.probeHash != probeHash(data) && !(unexecuted && reuseForUnexecutedClasses)) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        // Same rule as the analyzer: without data for this id, the class mismatches when its name has data
+        boolean noMatch = data == null && entry.className != null && executionDataStore.contains(entry.className);
+        try {
+            List<IClassCoverage> classes = ClassCoverageCodec.read(new DataInputStream(new ByteArrayInputStream(entry.data)), classId, noMatch, unexecuted);
+            entry.used = true;
+            hits.incrementAndGet();
+            if (unexecuted) {
+                unexecutedHits.incrementAndGet();
+            }
+            return classes;
+        } catch (IOException e) {
+            entries.remove(classId);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * The entry of a class, or its alternative when only that one was recorded for the given probes. The chosen
+     * alternative replaces the entry, so it is the one written back to disk.
+     */
+    private @Nullable Entry select(long classId, long probeHash) {
+        Entry entry = entries.get(classId);
+        Entry alternative = alternatives.get(classId);
+        if (alternative == null || alternative.probeHash != probeHash) {
+            return entry;
+        }
+
+        entries.put(classId, alternative);
+        alternatives.remove(classId);
+        return alternative;
+    }
+
+    /**
+     * Stores the analysis result of a class. Must be called before fragments are applied to the classes.
+     */
+    void put(long classId, @NotNull ExecutionDataStore executionDataStore, @NotNull List<IClassCoverage> classes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            ClassCoverageCodec.write(classes, out);
+        }
+
+        String className = classes.isEmpty() ? null : classes.get(0).getName();
+        Entry entry = new Entry(probeHash(executionDataStore.get(classId)), className, bytes.toByteArray());
+        entry.used = true;
+        entries.put(classId, entry);
+        alternatives.remove(classId);
+    }
+
+    /**
+     * Writes the entry of a class back to disk although it was not looked up, e.g. because its class file did not
+     * change since the previous incremental report.
+     */
+    void keep(long classId) {
+        Entry entry = entries.get(classId);
+        if (entry != null) {
+            entry.used = true;
+        }
+    }
+
+    /**
+     * Takes over the entries of another cache. They are only written back to disk when this run uses them.
+     * An existing entry is kept; when the other one was recorded for other execution data, it becomes the alternative.
+     */
+    void putAll(@NotNull AnalysisCache other) {
+        for (Map.Entry<Long, Entry> mapEntry : other.entries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            Entry copy = new Entry(entry.probeHash, entry.className, entry.data);
+            Entry existing = entries.putIfAbsent(mapEntry.getKey(), copy);
+            if (existing != null && existing.probeHash != copy.probeHash) {
+                alternatives.put(mapEntry.getKey(), copy);
+            }
+        }
+    }
+
+    /**
+     * Serve classes without execution data from an entry recorded for other execution data of the same class bytes,
+     * instead of analyzing them again.
+     */
+    void setReuseForUnexecutedClasses(boolean reuseForUnexecutedClasses) {
+        this.reuseForUnexecutedClasses = reuseForUnexecutedClasses;
+    }
+
+    int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of hits for classes without execution data that reused an entry of executed bytes
+     */
+    int getUnexecutedHits() {
+        return unexecutedHits.get();
+    }
+
+    int getMisses() {
+        return misses.get();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Hashes the probe array of a class: a marker byte and the number of probes, followed by the probes packed as bits.
+     * The marker keeps an empty probe array apart from {@link #NO_PROBES}, as CRC64 maps leading zero bytes to zero.
+     */
+    static long probeHash(@Nullable ExecutionData data) {
+        if (data == null) {
+            return NO_PROBES;
+        }
+
+        boolean[] probes = data.getProbes();
+        byte[] packed = new byte[5 + (probes.length + 7) / 8];
+        packed[0] = 1;
+        packed[1] = (byte) (probes.length >>> 24);
+        packed[2] = (byte) (probes.length >>> 16);
+        packed[3] = (byte) (probes.length >>> 8);
+        packed[4] = (byte) probes.length;
+        for (int i = 0; i < probes.length; i++) {
+            if (probes[i]) {
+                packed[5 + i / 8] |= (byte) (1 << (i % 8));
+            }
+        }
+        return CRC64.classId(packed);
+    }
+
+    @RequiredArgsConstructor
+    static class Entry {
+        final long probeHash;
+        final String className;
+        final byte[] data;
+        volatile boolean used;
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.svaningelgem;
+
+import org.apache.maven.plugin.logging.Log;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Analyzes the classes of deferred modules in the background, while the rest of the reactor is still building.
+ * <p>
+ * A module only knows its own execution data, while its classes may also be exercised by the tests of other modules.
+ * The background results therefore go into an in-memory {@link AnalysisCache}: the final analysis reuses a result only
+ * when the probes of the merged execution data are identical, and analyzes the class again otherwise.
+ * The report is the same as without pipelining; only the work moves off the critical path.
+ * <p>
+ * All jobs run one after the other on a single daemon thread, so the pipeline never competes for more than one core
+ * with the build itself. The state is reset whenever a new session shows up.
+ */
+public class AnalysisPipeline {
+    private final List<Future<?>> jobs = new ArrayList<>();
+    private AnalysisCache cache = new AnalysisCache();
+    private ExecutorService executor;
+    private Object session;
+
+    /**
+     * Schedules the speculative analysis of one module.
+     *
+     * @param session    The build session the module belongs to
+     * @param execFiles  The execution data of the module
+     * @param classFiles The class files of the module
+     * @param log        Receives the errors of the background analysis
+     */
+    public synchronized void submit(@NotNull Object session, @NotNull Set<File> execFiles, @NotNull List<ClassFile> classFiles, @NotNull Log log) {
+        if (this.session != session) {
+            clear();
+            this.session = session;
+        }
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(ParallelTasks.daemonThreadFactory());
+        }
+
+        AnalysisCache target = cache;
+        jobs.add(executor.submit(() -> {
+            ExecutionDataStore executionDataStore = new ExecutionDataMerger(1, ClassFile.classNames(classFiles)).loadExecutionData(execFiles);
+            new ClassAnalysisEngine(executionDataStore, 1, log, target).analyze(classFiles, coverage -> {
+            });
+            return null;
+        }));
+    }
+
+    /**
+     * Waits for all scheduled jobs and hands over their results. The pipeline is empty afterwards.
+     * A failed job only means its classes are analyzed in the final pass.
+     *
+     * @return The speculative analysis results of all modules
+     * @throws IOException if the calling thread was interrupted while waiting
+     */
+    public @NotNull AnalysisCache await(@NotNull Log log) throws IOException {
+        List<Future<?>> pending;
+        AnalysisCache results;
+        synchronized (this) {
+            pending = new ArrayList<>(jobs);
+            results = cache;
+        }
+
+        for (Future<?> job : pending) {
+            try {
+                ParallelTasks.get(job);
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException | RuntimeException e) {
+                log.debug("Background analysis failed: " + e.getMessage());
+            }
+        }
+
+        synchronized (this) {
+            if (cache == results) {
+                clear();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Number of modules scheduled in the current session
+     */
+    public synchronized int getJobCount() {
+        return jobs.size();
+    }
+
+    public synchronized void clear() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        jobs.clear();
+        cache = new AnalysisCache();
+        session = null;
+    }
+}
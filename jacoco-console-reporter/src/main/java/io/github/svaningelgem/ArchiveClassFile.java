@@ -0,0 +1,52 @@
+package io.github.svaningelgem;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A compiled class that is an entry of an archive, possibly nested in other archives.
+ * The bytes are only inflated when the class is analyzed.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+public class ArchiveClassFile extends ClassFile {
+    /**
+     * Location within the outermost archive, e.g. "WEB-INF/lib/core.jar!/com/example/Foo.class"
+     */
+    private final String entryLocation;
+
+    @EqualsAndHashCode.Exclude
+    private final ArchiveReader archive;
+
+    @EqualsAndHashCode.Exclude
+    private final ArchiveReader.Entry entry;
+
+    /**
+     * @param path          Path of the outermost archive on disk
+     * @param entryLocation Location of the class within that archive
+     * @param className     VM name of the class, or null when unknown
+     * @param archive       The (nested) archive holding the entry
+     * @param entry         The entry of the class
+     */
+    public ArchiveClassFile(Path path, @NotNull String entryLocation, @Nullable String className, @NotNull ArchiveReader archive, @NotNull ArchiveReader.Entry entry) {
+        super(path, className);
+        this.entryLocation = entryLocation;
+        this.archive = archive;
+        this.entry = entry;
+    }
+
+    @Override
+    public @NotNull String getLocation() {
+        return getPath() + "!/" + entryLocation;
+    }
+
+    @Override
+    public byte[] readBytes() throws IOException {
+        return archive.readBytes(entry);
+    }
+}
@@ -0,0 +1,273 @@
+package io.github.svaningelgem;
+
+import lombok.Data;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the entries of a zip archive (jar, war) straight from a {@link ByteBuffer}.
+ * <p>
+ * Archives on disk are memory-mapped through a {@link FileChannel}. The entry list comes from the central directory,
+ * so entries can be selected by name without inflating anything. An archive nested in another one is read from the
+ * bytes of its entry: without a copy when it is stored, as wars and Spring Boot jars do, or inflated into the heap.
+ * <p>
+ * Reading entries is thread-safe. ZIP64 archives are supported; split and encrypted archives are not.
+ */
+public class ArchiveReader {
+    /**
+     * Archives from this size on are memory-mapped instead of read
+     */
+    static final long MAP_THRESHOLD = 1L << 20;
+
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_EXTRA_FIELD = 0x0001;
+    private static final long UNKNOWN_32 = 0xFFFFFFFFL;
+
+    private final ByteBuffer buffer;
+    private final List<Entry> entries;
+
+    ArchiveReader(@NotNull ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            this.entries = Collections.unmodifiableList(readCentralDirectory());
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Invalid zip archive: truncated central directory", e);
+        }
+    }
+
+    /**
+     * Opens an archive on disk
+     *
+     * @throws IOException if the file can't be read or is not a zip archive
+     */
+    public static @NotNull ArchiveReader open(@NotNull Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Archive too large: " + size + " bytes");
+            } else if (size >= MAP_THRESHOLD) {
+                return new ArchiveReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+
+            ByteBuffer heap = ByteBuffer.allocate((int) size);
+            while (heap.hasRemaining() && channel.read(heap) >= 0) {
+                // keep reading
+            }
+            heap.flip();
+            return new ArchiveReader(heap);
+        }
+    }
+
+    /**
+     * Opens an archive that is an entry of this archive
+     */
+    public @NotNull ArchiveReader openNested(@NotNull Entry entry) throws IOException {
+        return new ArchiveReader(read(entry));
+    }
+
+    /**
+     * The entries in the order of the central directory
+     */
+    public @NotNull List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the uncompressed content of an entry
+     */
+    public byte[] readBytes(@NotNull Entry entry) throws IOException {
+        ByteBuffer content = read(entry);
+        if (content.hasArray() && content.arrayOffset() == 0 && content.remaining() == content.array().length) {
+            return content.array();
+        }
+
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        return bytes;
+    }
+
+    private @NotNull ByteBuffer read(@NotNull Entry entry) throws IOException {
+        ByteBuffer data = data(entry);
+        if (entry.method == STORED) {
+            return data;
+        }
+
+        byte[] compressed = new byte[data.remaining()];
+        data.get(compressed);
+        byte[] content = new byte[(int) entry.size];
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < content.length && !inflater.finished()) {
+                int inflated = inflater.inflate(content, length, content.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != content.length) {
+                throw new IOException("Invalid zip entry " + entry.name + ": expected " + content.length + " bytes, got " + length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid zip entry " + entry.name + ": " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(content);
+    }
+
+    /**
+     * The raw (possibly compressed) bytes of an entry
+     */
+    private @NotNull ByteBuffer data(@NotNull Entry entry) throws IOException {
+        try {
+            int header = (int) entry.localHeaderOffset;
+            if (buffer.getInt(header) != LOCAL_FILE_HEADER) {
+                throw new IOException("Invalid zip entry " + entry.name + ": no local file header");
+            }
+
+            int start = header + 30 + (buffer.getShort(header + 26) & 0xFFFF) + (buffer.getShort(header + 28) & 0xFFFF);
+            ByteBuffer data = buffer.duplicate();
+            data.limit(Math.addExact(start, (int) entry.compressedSize)).position(start);
+            return data.slice();
+        } catch (IndexOutOfBoundsException | IllegalArgumentException | ArithmeticException e) {
+            throw new IOException("Invalid zip entry " + entry.name + ": outside of the archive", e);
+        }
+    }
+
+    private @NotNull List<Entry> readCentralDirectory() throws IOException {
+        int end = findEndOfCentralDirectory();
+        long count = buffer.getShort(end + 10) & 0xFFFF;
+        long offset = buffer.getInt(end + 16) & UNKNOWN_32;
+
+        int locator = end - 20;
+        if (locator >= 0 && buffer.getInt(locator) == ZIP64_LOCATOR) {
+            int zip64End = checkedOffset(buffer.getLong(locator + 8));
+            if (buffer.getInt(zip64End) != ZIP64_END_OF_CENTRAL_DIRECTORY) {
+                throw new IOException("Invalid zip archive: no ZIP64 end of central directory");
+            }
+            count = buffer.getLong(zip64End + 32);
+            offset = buffer.getLong(zip64End + 48);
+        }
+
+        List<Entry> result = new ArrayList<>((int) Math.min(count, 1 << 16));
+        int position = checkedOffset(offset);
+        for (long i = 0; i < count; i++) {
+            if (buffer.getInt(position) != CENTRAL_DIRECTORY_HEADER) {
+                throw new IOException("Invalid zip archive: corrupt central directory");
+            }
+
+            int flags = buffer.getShort(position + 8) & 0xFFFF;
+            int method = buffer.getShort(position + 10) & 0xFFFF;
+            long compressedSize = buffer.getInt(position + 20) & UNKNOWN_32;
+            long size = buffer.getInt(position + 24) & UNKNOWN_32;
+            int nameLength = buffer.getShort(position + 28) & 0xFFFF;
+            int extraLength = buffer.getShort(position + 30) & 0xFFFF;
+            int commentLength = buffer.getShort(position + 32) & 0xFFFF;
+            long localHeaderOffset = buffer.getInt(position + 42) & UNKNOWN_32;
+
+            String name = new String(bytes(position + 46, nameLength), StandardCharsets.UTF_8);
+
+            // ZIP64: the values that don't fit in 32 bits follow in the extra field, in this order
+            int extra = position + 46 + nameLength;
+            for (int field = extra; field + 4 <= extra + extraLength; ) {
+                int id = buffer.getShort(field) & 0xFFFF;
+                int fieldLength = buffer.getShort(field + 2) & 0xFFFF;
+                if (id == ZIP64_EXTRA_FIELD) {
+                    int value = field + 4;
+                    if (size == UNKNOWN_32) {
+                        size = buffer.getLong(value);
+                        value += 8;
+                    }
+                    if (compressedSize == UNKNOWN_32) {
+                        compressedSize = buffer.getLong(value);
+                        value += 8;
+                    }
+                    if (localHeaderOffset == UNKNOWN_32) {
+                        localHeaderOffset = buffer.getLong(value);
+                    }
+                }
+                field += 4 + fieldLength;
+            }
+
+            if (!name.endsWith("/")) {
+                if ((flags & 1) != 0) {
+                    throw new IOException("Encrypted zip entries are not supported: " + name);
+                }
+                if (method != STORED && method != DEFLATED) {
+                    throw new IOException("Unsupported compression method " + method + " of zip entry " + name);
+                }
+                if (size > Integer.MAX_VALUE || compressedSize > Integer.MAX_VALUE || localHeaderOffset > Integer.MAX_VALUE) {
+                    throw new IOException("Zip entry too large: " + name);
+                }
+                result.add(new Entry(name, method, compressedSize, size, localHeaderOffset));
+            }
+
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+        return result;
+    }
+
+    /**
+     * Searches the end of central directory record backwards, as the archive comment may follow it
+     */
+    private int findEndOfCentralDirectory() throws IOException {
+        int last = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        for (int position = last; position >= 0 && position >= last - 0xFFFF; position--) {
+            if (buffer.getInt(position) == END_OF_CENTRAL_DIRECTORY) {
+                return position;
+            }
+        }
+        throw new IOException("Invalid zip archive: no end of central directory");
+    }
+
+    private int checkedOffset(long offset) throws IOException {
+        if (offset < 0 || offset >= buffer.limit()) {
+            throw new IOException("Invalid zip archive: offset " + offset + " outside of the archive");
+        }
+        return (int) offset;
+    }
+
+    private byte[] bytes(int position, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(position);
+        source.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * A file in the archive, as listed in the central directory
+     */
+    @Data
+    public static class Entry {
+        private final String name;
+        private final int method;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.svaningelgem;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.maven.plugin.logging.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent index of the package declarations found in the build directory.
+ * <p>
+ * An entry is keyed by the path of a source file and remembers its size and modification time. While both are
+ * unchanged, the package declaration of the previous build is reused and the file is not opened at all.
+ * <p>
+ * Lookups and updates are thread-safe, so the scanning workers can use the index concurrently.
+ */
+public class BuildDirectoryIndex {
+    static final int MAGIC = 0x4A434249;
+    static final int FORMAT_VERSION = 1;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Loads the index from disk, see {@link StateFile}.
+     */
+    static @NotNull BuildDirectoryIndex load(@NotNull File file, @NotNull Log log) {
+        BuildDirectoryIndex index = StateFile.read(file, MAGIC, FORMAT_VERSION, "build directory index", log, in -> {
+            BuildDirectoryIndex loaded = new BuildDirectoryIndex();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                String packageName = in.readBoolean() ? in.readUTF() : null;
+                loaded.entries.put(path, new Entry(size, lastModified, packageName));
+            }
+            return loaded;
+        });
+        return index == null ? new BuildDirectoryIndex() : index;
+    }
+
+    /**
+     * Writes the entries of all files seen during this run. Files that disappeared are dropped.
+     */
+    void save(@NotNull File file) throws IOException {
+        StateFile.write(file, MAGIC, FORMAT_VERSION, out -> {
+            long used = entries.values().stream().filter(entry -> entry.used).count();
+            out.writeInt((int) used);
+            for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                if (!entry.used) {
+                    continue;
+                }
+
+                out.writeUTF(mapEntry.getKey());
+                out.writeLong(entry.size);
+                out.writeLong(entry.lastModified);
+                out.writeBoolean(entry.packageName != null);
+                if (entry.packageName != null) {
+                    out.writeUTF(entry.packageName);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the indexed entry of a source file, if the file is unchanged since it was indexed.
+     */
+    @Nullable Entry get(@NotNull Path path, long size, long lastModified) {
+        Entry entry = entries.get(path.toString());
+        if (entry == null || entry.size != size || entry.lastModified != lastModified) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        entry.used = true;
+        hits.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Stores the package declaration of a source file that was just scanned.
+     */
+    void put(@NotNull Path path, long size, long lastModified, @Nullable String packageName) {
+        Entry entry = new Entry(size, lastModified, packageName);
+        entry.used = true;
+        entries.put(path.toString(), entry);
+    }
+
+    int getHits() {
+        return hits.get();
+    }
+
+    int getMisses() {
+        return misses.get();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    @RequiredArgsConstructor
+    static class Entry {
+        final long size;
+        final long lastModified;
+        final String packageName;
+        volatile boolean used;
+    }
+}
@@ -0,0 +1,132 @@
+package io.github.svaningelgem;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.maven.plugin.logging.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+/**
+ * Finds the Java sources in the build directory (generated code) and derives the class file each one compiles to.
+ * <p>
+ * Only the package declaration of every file is read, and the files are spread over a pool of worker threads.
+ * Problems are logged on the calling thread, after all files were scanned.
+ * <p>
+ * When a {@link BuildDirectoryIndex} is given, files whose size and modification time are unchanged are not read again.
+ */
+@RequiredArgsConstructor
+public class BuildDirectoryScanner {
+    private final FileReader fileReader;
+    private final int threads;
+    private final Log log;
+    private final @Nullable BuildDirectoryIndex index;
+
+    public BuildDirectoryScanner(FileReader fileReader, int threads, Log log) {
+        this(fileReader, threads, log, null);
+    }
+
+    /**
+     * Scans all Java sources below the build directory.
+     *
+     * @param buildDir The build directory
+     * @return The class file of every source with a package declaration, e.g. "com/example/Generated.class"
+     * @throws IOException if the build directory can't be walked
+     */
+    public @NotNull List<String> scan(@NotNull Path buildDir) throws IOException {
+        List<SourceFile> sources = findSources(buildDir);
+
+        List<Callable<List<ScannedSource>>> tasks = new ArrayList<>();
+        for (List<SourceFile> chunk : ParallelTasks.chunks(sources, threads)) {
+            tasks.add(() -> scanChunk(chunk));
+        }
+
+        List<String> classFiles = new ArrayList<>();
+        for (List<ScannedSource> chunk : ParallelTasks.run(threads, tasks)) {
+            for (ScannedSource scanned : chunk) {
+                if (scanned.error != null) {
+                    log.warn("Failed to read file: " + scanned.path, scanned.error);
+                } else if (scanned.packageName != null) {
+                    classFiles.add(toClassFile(scanned.path, scanned.packageName));
+                }
+            }
+        }
+        return classFiles;
+    }
+
+    static @NotNull List<SourceFile> findSources(@NotNull Path buildDir) throws IOException {
+        List<SourceFile> sources = new ArrayList<>();
+        Files.walkFileTree(buildDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public @NotNull FileVisitResult visitFile(@NotNull Path file, @NotNull BasicFileAttributes attrs) {
+                if (file.toString().toLowerCase(Locale.ENGLISH).endsWith(".java")) {
+                    sources.add(new SourceFile(file, attrs.size(), attrs.lastModifiedTime().toMillis()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        sources.sort(Comparator.comparing(source -> source.path));
+        return sources;
+    }
+
+    static @NotNull String toClassFile(@NotNull Path source, @NotNull String packageName) {
+        String fileName = source.getFileName().toString();
+        String className = fileName.substring(0, fileName.lastIndexOf('.')) + ".class";
+        return packageName.replace(".", "/") + "/" + className;
+    }
+
+    private @NotNull List<ScannedSource> scanChunk(@NotNull List<SourceFile> chunk) {
+        List<ScannedSource> results = new ArrayList<>(chunk.size());
+        for (SourceFile source : chunk) {
+            results.add(scanSource(source));
+        }
+        return results;
+    }
+
+    private @NotNull ScannedSource scanSource(@NotNull SourceFile source) {
+        BuildDirectoryIndex.Entry indexed = index == null ? null : index.get(source.path, source.size, source.lastModified);
+        if (indexed != null) {
+            return new ScannedSource(source.path, indexed.packageName, null);
+        }
+
+        try {
+            String packageName = fileReader.readPackageName(source.path);
+            if (index != null) {
+                index.put(source.path, source.size, source.lastModified, packageName);
+            }
+            return new ScannedSource(source.path, packageName, null);
+        } catch (IOException e) {
+            return new ScannedSource(source.path, null, e);
+        }
+    }
+
+    /**
+     * A source file with the attributes the index is keyed on
+     */
+    @RequiredArgsConstructor
+    static class SourceFile {
+        final Path path;
+        final long size;
+        final long lastModified;
+    }
+
+    /**
+     * Outcome of scanning one source file
+     */
+    @RequiredArgsConstructor
+    static class ScannedSource {
+        final Path path;
+        final String packageName;
+        final IOException error;
+    }
+}
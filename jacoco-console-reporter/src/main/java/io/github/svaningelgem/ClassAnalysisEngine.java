@@ -0,0 +1,149 @@
+package io.github.svaningelgem;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.maven.plugin.logging.Log;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageVisitor;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.data.CRC64;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Analyzes class files with JaCoCo, optionally spread over several worker threads.
+ * <p>
+ * Every worker owns its own {@link Analyzer} and collects its results in input order.
+ * The results are handed to the target visitor on the calling thread, in the order of the given class files, so
+ * the outcome never depends on thread scheduling. A chunk of results is dropped as soon as it was visited.
+ * <p>
+ * When an {@link AnalysisCache} is given, classes whose bytes and execution data are unchanged are restored from it
+ * instead of being analyzed.
+ */
+@RequiredArgsConstructor
+public class ClassAnalysisEngine {
+    private final ExecutionDataStore executionDataStore;
+    private final int threads;
+    private final Log log;
+    private final @Nullable AnalysisCache analysisCache;
+    /**
+     * Timings the work of the worker threads counts for, or null to not measure it
+     */
+    private final @Nullable ReportTimings timings;
+
+    public ClassAnalysisEngine(ExecutionDataStore executionDataStore, int threads, Log log) {
+        this(executionDataStore, threads, log, null);
+    }
+
+    public ClassAnalysisEngine(ExecutionDataStore executionDataStore, int threads, Log log, @Nullable AnalysisCache analysisCache) {
+        this(executionDataStore, threads, log, analysisCache, null);
+    }
+
+    /**
+     * Analyzes all class files and feeds the resulting coverage into the visitor.
+     *
+     * @param classFiles The class files to analyze, in the order their results should be merged
+     * @param visitor    Receives the coverage of every analyzed class
+     * @throws IOException if the analysis was interrupted
+     */
+    public void analyze(@NotNull List<ClassFile> classFiles, @NotNull ICoverageVisitor visitor) throws IOException {
+        ParallelTasks.forEach(threads, createTasks(classFiles), timings, chunk -> {
+            for (AnalyzedClass analyzed : chunk) {
+                merge(analyzed, visitor);
+            }
+        });
+    }
+
+    @NotNull List<Callable<List<AnalyzedClass>>> createTasks(@NotNull List<ClassFile> classFiles) {
+        List<Callable<List<AnalyzedClass>>> tasks = new ArrayList<>();
+        for (List<ClassFile> chunk : ParallelTasks.chunks(classFiles, threads)) {
+            tasks.add(() -> analyzeChunk(chunk));
+        }
+        return tasks;
+    }
+
+    /**
+     * Analyzes a consecutive range of class files with a dedicated analyzer
+     */
+    @NotNull List<AnalyzedClass> analyzeChunk(@NotNull List<ClassFile> chunk) {
+        List<AnalyzedClass> results = new ArrayList<>(chunk.size());
+        List<IClassCoverage> collected = new ArrayList<>();
+        Analyzer analyzer = new Analyzer(executionDataStore, collected::add);
+
+        for (ClassFile classFile : chunk) {
+            collected.clear();
+            Exception error = null;
+            try {
+                analyzeClass(analyzer, classFile, collected);
+            } catch (Exception e) {
+                error = e;
+            }
+            results.add(new AnalyzedClass(classFile, new ArrayList<>(collected), error));
+        }
+
+        return results;
+    }
+
+    private void analyzeClass(@NotNull Analyzer analyzer, @NotNull ClassFile classFile, @NotNull List<IClassCoverage> collected) throws IOException {
+        try (FlightRecorderEvent.ClassAnalysis event = FlightRecorderEvents.classAnalysis(classFile.getLocation())) {
+            byte[] bytes = classFile.readBytes();
+            event.setBytes(bytes.length);
+            if (analysisCache == null) {
+                analyzer.analyzeClass(bytes, classFile.getLocation());
+                return;
+            }
+
+            long classId = CRC64.classId(bytes);
+            List<IClassCoverage> cached = analysisCache.get(classId, executionDataStore);
+            if (cached != null) {
+                event.setCached(true);
+                collected.addAll(cached);
+                return;
+            }
+
+            analyzer.analyzeClass(bytes, classFile.getLocation());
+            analysisCache.put(classId, executionDataStore, collected);
+        }
+    }
+
+    void merge(@NotNull AnalyzedClass analyzed, @NotNull ICoverageVisitor visitor) {
+        if (analyzed.error != null) {
+            log.debug("Error analyzing class file: " + analyzed.classFile.getLocation() + ": " + analyzed.error.getMessage());
+            return;
+        }
+
+        for (IClassCoverage coverage : analyzed.coverages) {
+            try {
+                visitor.visitCoverage(coverage);
+            } catch (IllegalStateException e) {
+                // Two different classes with the same name; other failures of the visitor, like an
+                // UncheckedIOException of a report writer, end the analysis
+                log.debug("Error analyzing class file: " + analyzed.classFile.getLocation() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Thrown by a visitor to end the analysis: the classes after the current one are not analyzed or visited
+     */
+    static class StopAnalysis extends RuntimeException {
+        StopAnalysis() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Outcome of analyzing one class file
+     */
+    @RequiredArgsConstructor
+    static class AnalyzedClass {
+        final ClassFile classFile;
+        final List<IClassCoverage> coverages;
+        final Exception error;
+    }
+}
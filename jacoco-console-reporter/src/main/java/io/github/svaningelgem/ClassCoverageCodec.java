@@ -0,0 +1,221 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ILine;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.CounterImpl;
+import org.jacoco.core.internal.analysis.MethodCoverageImpl;
+import org.jacoco.core.internal.analysis.SourceNodeImpl;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes and reads the analysis result of a class, so it can be restored without running the analyzer again.
+ * <p>
+ * Everything JaCoCo derives from the class file is kept: the class header, every method with its per-line counters,
+ * and the Kotlin inline fragments. The restored classes are regular {@link ClassCoverageImpl} instances, so they
+ * behave exactly like freshly analyzed ones in a {@link org.jacoco.core.analysis.CoverageBuilder}.
+ */
+public class ClassCoverageCodec {
+    private ClassCoverageCodec() {
+    }
+
+    /**
+     * Writes the classes as they come out of the analyzer, before any fragments have been applied.
+     */
+    static void write(@NotNull Collection<IClassCoverage> classes, @NotNull DataOutput out) throws IOException {
+        out.writeInt(classes.size());
+        for (IClassCoverage coverage : classes) {
+            writeClass(coverage, out);
+        }
+    }
+
+    /**
+     * Reads classes written by {@link #write}.
+     *
+     * @param id      The class id the classes belong to
+     * @param noMatch Whether the execution data of the class did not match
+     */
+    static @NotNull List<IClassCoverage> read(@NotNull DataInput in, long id, boolean noMatch) throws IOException {
+        return read(in, id, noMatch, false);
+    }
+
+    /**
+     * Reads classes written by {@link #write}, optionally as if they were never executed.
+     * <p>
+     * Without execution data, the analyzer marks every instruction and branch as missed, and the structure (methods,
+     * lines, totals) only depends on the class bytes. So the result for a class that didn't run is the result recorded
+     * for any execution data of the same bytes, with all covered counts moved to missed.
+     *
+     * @param id         The class id the classes belong to
+     * @param noMatch    Whether the execution data of the class did not match
+     * @param unexecuted Whether to read all counters as missed
+     */
+    static @NotNull List<IClassCoverage> read(@NotNull DataInput in, long id, boolean noMatch, boolean unexecuted) throws IOException {
+        int count = in.readInt();
+        List<IClassCoverage> classes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            classes.add(readClass(in, id, noMatch, unexecuted));
+        }
+        return classes;
+    }
+
+    private static void writeClass(@NotNull IClassCoverage coverage, @NotNull DataOutput out) throws IOException {
+        out.writeUTF(coverage.getName());
+        writeNullableString(coverage.getSignature(), out);
+        writeNullableString(coverage.getSuperName(), out);
+        writeNullableString(coverage.getSourceFileName(), out);
+
+        String[] interfaces = coverage.getInterfaceNames();
+        out.writeInt(interfaces == null ? -1 : interfaces.length);
+        if (interfaces != null) {
+            for (String name : interfaces) {
+                out.writeUTF(name);
+            }
+        }
+
+        out.writeInt(coverage.getMethods().size());
+        for (IMethodCoverage method : coverage.getMethods()) {
+            out.writeUTF(method.getName());
+            out.writeUTF(method.getDesc());
+            writeNullableString(method.getSignature(), out);
+            writeCounter(method.getInstructionCounter(), out);
+            writeCounter(method.getBranchCounter(), out);
+            writeCounter(method.getComplexityCounter(), out);
+            writeCounter(method.getMethodCounter(), out);
+            writeLines(method, out);
+        }
+
+        Collection<SourceNodeImpl> fragments = coverage instanceof ClassCoverageImpl
+                ? ((ClassCoverageImpl) coverage).getFragments()
+                : new ArrayList<>();
+        out.writeInt(fragments.size());
+        for (SourceNodeImpl fragment : fragments) {
+            out.writeUTF(fragment.getName());
+            writeLines(fragment, out);
+        }
+    }
+
+    private static @NotNull IClassCoverage readClass(@NotNull DataInput in, long id, boolean noMatch, boolean unexecuted) throws IOException {
+        ClassCoverageImpl coverage = new ClassCoverageImpl(in.readUTF(), id, noMatch);
+        coverage.setSignature(readNullableString(in));
+        coverage.setSuperName(readNullableString(in));
+        coverage.setSourceFileName(readNullableString(in));
+
+        int interfaceCount = in.readInt();
+        if (interfaceCount >= 0) {
+            String[] interfaces = new String[interfaceCount];
+            for (int i = 0; i < interfaceCount; i++) {
+                interfaces[i] = in.readUTF();
+            }
+            coverage.setInterfaces(interfaces);
+        }
+
+        int methodCount = in.readInt();
+        for (int i = 0; i < methodCount; i++) {
+            RestoredMethodCoverage method = new RestoredMethodCoverage(in.readUTF(), in.readUTF(), readNullableString(in));
+            ICounter instructions = readCounter(in, unexecuted);
+            ICounter branches = readCounter(in, unexecuted);
+            ICounter complexity = readCounter(in, unexecuted);
+            ICounter methods = readCounter(in, unexecuted);
+            readLines(method, in, unexecuted);
+            method.restoreCounters(instructions, branches, complexity, methods);
+            coverage.addMethod(method);
+        }
+
+        int fragmentCount = in.readInt();
+        if (fragmentCount > 0) {
+            List<SourceNodeImpl> fragments = new ArrayList<>(fragmentCount);
+            for (int i = 0; i < fragmentCount; i++) {
+                SourceNodeImpl fragment = new SourceNodeImpl(null, in.readUTF());
+                readLines(fragment, in, unexecuted);
+                fragments.add(fragment);
+            }
+            coverage.setFragments(fragments);
+        }
+
+        return coverage;
+    }
+
+    private static void writeLines(@NotNull ISourceNode node, @NotNull DataOutput out) throws IOException {
+        int first = node.getFirstLine();
+        int last = node.getLastLine();
+        out.writeInt(first);
+        out.writeInt(last);
+        if (first == ISourceNode.UNKNOWN_LINE) {
+            return;
+        }
+
+        for (int nr = first; nr <= last; nr++) {
+            ILine line = node.getLine(nr);
+            writeCounter(line.getInstructionCounter(), out);
+            writeCounter(line.getBranchCounter(), out);
+        }
+    }
+
+    private static void readLines(@NotNull SourceNodeImpl node, @NotNull DataInput in, boolean unexecuted) throws IOException {
+        int first = in.readInt();
+        int last = in.readInt();
+        if (first == ISourceNode.UNKNOWN_LINE) {
+            return;
+        }
+
+        node.ensureCapacity(first, last);
+        for (int nr = first; nr <= last; nr++) {
+            ICounter instructions = readCounter(in, unexecuted);
+            ICounter branches = readCounter(in, unexecuted);
+            if (instructions.getTotalCount() > 0 || branches.getTotalCount() > 0) {
+                node.increment(instructions, branches, nr);
+            }
+        }
+    }
+
+    private static void writeCounter(@NotNull ICounter counter, @NotNull DataOutput out) throws IOException {
+        out.writeInt(counter.getMissedCount());
+        out.writeInt(counter.getCoveredCount());
+    }
+
+    private static @NotNull ICounter readCounter(@NotNull DataInput in, boolean unexecuted) throws IOException {
+        int missed = in.readInt();
+        int covered = in.readInt();
+        return unexecuted ? CounterImpl.getInstance(missed + covered, 0) : CounterImpl.getInstance(missed, covered);
+    }
+
+    private static void writeNullableString(@Nullable String value, @NotNull DataOutput out) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static @Nullable String readNullableString(@NotNull DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Method node whose totals are restored as they were recorded, instead of being derived again from its lines.
+     * This keeps instructions without line information and the complexity exactly as the analyzer computed them.
+     */
+    static class RestoredMethodCoverage extends MethodCoverageImpl {
+        RestoredMethodCoverage(String name, String desc, String signature) {
+            super(name, desc, signature);
+        }
+
+        void restoreCounters(@NotNull ICounter instructions, @NotNull ICounter branches, @NotNull ICounter complexity, @NotNull ICounter methods) {
+            instructionCounter = CounterImpl.getInstance(instructions);
+            branchCounter = CounterImpl.getInstance(branches);
+            complexityCounter = CounterImpl.getInstance(complexity);
+            methodCounter = CounterImpl.getInstance(methods);
+        }
+    }
+}
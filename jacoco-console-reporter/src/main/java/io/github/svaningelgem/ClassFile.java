@@ -0,0 +1,64 @@
+package io.github.svaningelgem;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A single compiled class that is scheduled for coverage analysis.
+ */
+@Data
+@RequiredArgsConstructor
+public class ClassFile {
+    /**
+     * Location of the class file on disk
+     */
+    private final Path path;
+
+    /**
+     * VM name of the class (e.g. "com/example/Foo$Bar"), as derived from its location; null when unknown
+     */
+    private final @Nullable String className;
+
+    public ClassFile(Path path) {
+        this(path, null);
+    }
+
+    /**
+     * Human-readable location, used in log and error messages
+     */
+    public @NotNull String getLocation() {
+        return path.toString();
+    }
+
+    /**
+     * Reads the raw bytes of this class
+     */
+    public byte[] readBytes() throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    /**
+     * Collects the VM names of the given class files.
+     *
+     * @return The names, or null when the name of any class file is unknown
+     */
+    static @Nullable Set<String> classNames(@NotNull Collection<ClassFile> classFiles) {
+        Set<String> names = new HashSet<>();
+        for (ClassFile classFile : classFiles) {
+            if (classFile.className == null) {
+                return null;
+            }
+            names.add(classFile.className);
+        }
+        return names;
+    }
+}
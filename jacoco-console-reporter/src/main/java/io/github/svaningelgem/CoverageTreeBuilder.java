@@ -0,0 +1,189 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ICoverageVisitor;
+import org.jacoco.core.analysis.ILine;
+import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiPredicate;
+
+/**
+ * Folds every analyzed class straight into the coverage tree, without building a bundle.
+ * <p>
+ * Class, method and branch counts are added per source file, after which the class is dropped. Several classes can
+ * be compiled from one source file and share its lines, so the lines of each source file are kept as bit sets: the
+ * lines with instructions and the covered ones, plus the missed and covered status bits when missing lines are shown.
+ * The result equals {@link JacocoConsoleReporterMojo#buildDirectoryTree}.
+ * <p>
+ * Kotlin inline functions and two different classes with the same name change the coverage of classes that were
+ * seen before. Those can't be streamed: {@link #isExact()} turns false and the bundle has to be built instead.
+ */
+public class CoverageTreeBuilder implements ICoverageVisitor {
+    private final BiPredicate<String, String> sourceFileExcluded;
+    private final boolean missingLines;
+    private final Map<String, Long> classIds = new HashMap<>();
+    private final Map<String, SourceFileData> sourceFiles = new TreeMap<>();
+    private boolean exact = true;
+
+    /**
+     * @param sourceFileExcluded Tells whether a source file is excluded, given the VM package name and the file name
+     * @param missingLines       Whether the source file nodes get their missing lines
+     */
+    public CoverageTreeBuilder(@NotNull BiPredicate<String, String> sourceFileExcluded, boolean missingLines) {
+        this.sourceFileExcluded = sourceFileExcluded;
+        this.missingLines = missingLines;
+    }
+
+    @Override
+    public void visitCoverage(@NotNull IClassCoverage coverage) {
+        Long previousId = classIds.put(coverage.getName(), coverage.getId());
+        if (previousId != null) {
+            // The same class from another location adds nothing; a different one replaces it in the bundle
+            exact &= previousId == coverage.getId();
+            return;
+        }
+        if (coverage instanceof ClassCoverageImpl && !((ClassCoverageImpl) coverage).getFragments().isEmpty()) {
+            exact = false;
+        }
+
+        String sourceFileName = coverage.getSourceFileName();
+        if (sourceFileName == null) {
+            return;
+        }
+
+        String packageName = coverage.getPackageName();
+        SourceFileData data = sourceFiles.computeIfAbsent(packageName + "/" + sourceFileName,
+                k -> sourceFileExcluded.test(packageName, sourceFileName) ? SourceFileData.EXCLUDED : new SourceFileData(packageName, sourceFileName));
+        if (data != SourceFileData.EXCLUDED) {
+            data.add(coverage, missingLines);
+        }
+    }
+
+    /**
+     * False when the visited classes affect each other, so the tree differs from the full report
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * The totals of all classes visited so far
+     */
+    public @NotNull CoverageMetrics getMetrics() {
+        CoverageMetrics result = new CoverageMetrics();
+        for (SourceFileData data : sourceFiles.values()) {
+            if (data != SourceFileData.EXCLUDED) {
+                result.add(data.getMetrics());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Builds the directory tree of all classes visited so far, with its metrics aggregated
+     */
+    public @NotNull DirectoryNode build() {
+        DirectoryNode root = new DirectoryNode("");
+        for (SourceFileData data : sourceFiles.values()) {
+            if (data == SourceFileData.EXCLUDED) {
+                continue;
+            }
+
+            DirectoryNode current = root;
+            for (String component : data.packageName.split("/")) {
+                current = current.getSubdirectories().computeIfAbsent(component, DirectoryNode::new);
+            }
+            current.getSourceFiles().add(node(data));
+        }
+        root.aggregate();
+        return root;
+    }
+
+    /**
+     * Builds the source file nodes of all classes visited so far, keyed by package and file name, e.g. "com/example/Foo.java"
+     */
+    public @NotNull Map<String, SourceFileNode> buildSourceFiles() {
+        Map<String, SourceFileNode> nodes = new TreeMap<>();
+        for (Map.Entry<String, SourceFileData> entry : sourceFiles.entrySet()) {
+            if (entry.getValue() != SourceFileData.EXCLUDED) {
+                nodes.put(entry.getKey(), node(entry.getValue()));
+            }
+        }
+        return nodes;
+    }
+
+    private @NotNull SourceFileNode node(@NotNull SourceFileData data) {
+        String missing = missingLines ? data.formatMissingLines() : null;
+        return new SourceFileNode(data.fileName, data.getMetrics(), missing);
+    }
+
+    /**
+     * The counters of one source file
+     */
+    private static class SourceFileData {
+        static final SourceFileData EXCLUDED = new SourceFileData("", "");
+
+        final String packageName;
+        final String fileName;
+        final CoverageMetrics metrics = new CoverageMetrics();
+        final BitSet lines = new BitSet();
+        final BitSet coveredLines = new BitSet();
+        /**
+         * Lines with any missed instruction or branch, and lines with any covered one: together the line status
+         */
+        final BitSet missedStatus = new BitSet();
+        final BitSet coveredStatus = new BitSet();
+
+        SourceFileData(@NotNull String packageName, @NotNull String fileName) {
+            this.packageName = packageName;
+            this.fileName = fileName;
+        }
+
+        void add(@NotNull IClassCoverage coverage, boolean lineStatus) {
+            metrics.totalClasses++;
+            if (coverage.getMethodCounter().getCoveredCount() > 0) {
+                metrics.coveredClasses++;
+            }
+            metrics.totalMethods += coverage.getMethodCounter().getTotalCount();
+            metrics.coveredMethods += coverage.getMethodCounter().getCoveredCount();
+            metrics.totalBranches += coverage.getBranchCounter().getTotalCount();
+            metrics.coveredBranches += coverage.getBranchCounter().getCoveredCount();
+
+            for (int nr = coverage.getFirstLine(); nr != ISourceNode.UNKNOWN_LINE && nr <= coverage.getLastLine(); nr++) {
+                ILine line = coverage.getLine(nr);
+                if (line.getInstructionCounter().getTotalCount() > 0) {
+                    lines.set(nr);
+                }
+                if (line.getInstructionCounter().getCoveredCount() > 0) {
+                    coveredLines.set(nr);
+                }
+                if (lineStatus) {
+                    // Summed counters of a shared line have the union of the status bits of the classes
+                    int status = line.getStatus();
+                    missedStatus.set(nr, (status & ICounter.NOT_COVERED) != 0 || missedStatus.get(nr));
+                    coveredStatus.set(nr, (status & ICounter.FULLY_COVERED) != 0 || coveredStatus.get(nr));
+                }
+            }
+        }
+
+        @NotNull CoverageMetrics getMetrics() {
+            CoverageMetrics result = metrics.clone();
+            result.totalLines = lines.cardinality();
+            result.coveredLines = coveredLines.cardinality();
+            return result;
+        }
+
+        @NotNull String formatMissingLines() {
+            int lastLine = Math.max(missedStatus.length(), coveredStatus.length()) - 1;
+            return JacocoConsoleReporterMojo.formatMissingLines(0, lastLine,
+                    nr -> (missedStatus.get(nr) ? ICounter.NOT_COVERED : 0) | (coveredStatus.get(nr) ? ICounter.FULLY_COVERED : 0));
+        }
+    }
+}
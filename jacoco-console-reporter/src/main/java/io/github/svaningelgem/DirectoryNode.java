@@ -1,7 +1,12 @@
 package io.github.svaningelgem;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import org.apache.maven.plugin.logging.Log;
 import org.jetbrains.annotations.NotNull;
 
@@ -13,6 +18,9 @@ import java.util.stream.Collectors;
 
 /**
  * A node representing a directory (package) in the coverage tree.
+ * <p>
+ * The metrics and inclusion of a subtree are aggregated once and then reused: call {@link #aggregate()} after adding
+ * or removing subdirectories or source files. {@link #getMetrics()} hands out a copy, so callers can't change them.
  */
 @Data
 @RequiredArgsConstructor
@@ -32,16 +40,62 @@ public class DirectoryNode implements FileSystemNode {
      */
     public final List<SourceFileNode> sourceFiles = new ArrayList<>();
 
+    /**
+     * Aggregated metrics of this subtree, filled in by {@link #aggregate()}
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private CoverageMetrics aggregatedMetrics;
+
+    /**
+     * Whether this subtree contains any source file, filled in by {@link #aggregate()}
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean included;
+
+    /**
+     * Returns a copy of the metrics of this whole subtree.
+     * They are aggregated on first use; call {@link #aggregate()} again after changing the tree.
+     */
     @Override
     public CoverageMetrics getMetrics() {
-        CoverageMetrics aggregated = new CoverageMetrics();
-        sourceFiles.forEach(file -> aggregated.add(file.getMetrics()));
-        subdirectories.values().forEach(subdir -> aggregated.add(subdir.getMetrics()));
-        return aggregated;
+        if (aggregatedMetrics == null) {
+            aggregate();
+        }
+        return aggregatedMetrics.clone();
     }
 
     public boolean shouldInclude() {
-        return !sourceFiles.isEmpty() || subdirectories.values().stream().anyMatch(DirectoryNode::shouldInclude);
+        if (aggregatedMetrics == null) {
+            aggregate();
+        }
+        return included;
+    }
+
+    /**
+     * Computes the metrics and inclusion of this node and all nodes below it, in a single post-order pass.
+     *
+     * @return A copy of the aggregated metrics of this subtree
+     */
+    public CoverageMetrics aggregate() {
+        CoverageMetrics aggregated = new CoverageMetrics();
+        sourceFiles.forEach(file -> aggregated.add(file.getMetrics()));
+
+        boolean anyIncluded = !sourceFiles.isEmpty();
+        for (DirectoryNode subdir : subdirectories.values()) {
+            subdir.aggregate();
+            aggregated.add(subdir.aggregatedMetrics);
+            anyIncluded |= subdir.included;
+        }
+
+        aggregatedMetrics = aggregated;
+        included = anyIncluded;
+        return aggregated.clone();
     }
 
     <T extends FileSystemNode> void printNodes(Log log, String prefix,
@@ -92,12 +146,13 @@ public class DirectoryNode implements FileSystemNode {
         }
 
         String printableName = isRoot ? "<root>" : prefix + packagePath + (packagePath.isEmpty() ? "" : ".") + name;
+        CoverageMetrics metrics = getMetrics();
         log.info(String.format(format,
                 Defaults.getInstance().truncateMiddle(printableName),
-                Defaults.getInstance().formatCoverage(getMetrics().getCoveredClasses(), getMetrics().getTotalClasses()),
-                Defaults.getInstance().formatCoverage(getMetrics().getCoveredMethods(), getMetrics().getTotalMethods()),
-                Defaults.getInstance().formatCoverage(getMetrics().getCoveredBranches(), getMetrics().getTotalBranches()),
-                Defaults.getInstance().formatCoverage(getMetrics().getCoveredLines(), getMetrics().getTotalLines())));
+                Defaults.getInstance().formatCoverage(metrics.getCoveredClasses(), metrics.getTotalClasses()),
+                Defaults.getInstance().formatCoverage(metrics.getCoveredMethods(), metrics.getTotalMethods()),
+                Defaults.getInstance().formatCoverage(metrics.getCoveredBranches(), metrics.getTotalBranches()),
+                Defaults.getInstance().formatCoverage(metrics.getCoveredLines(), metrics.getTotalLines())));
 
         packagePath = "";  // Reset because we shouldn't collapse now anymore
 
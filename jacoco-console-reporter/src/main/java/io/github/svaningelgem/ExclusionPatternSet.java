@@ -0,0 +1,221 @@
+package io.github.svaningelgem;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The set of exclusion patterns, with a matcher that avoids running every regex for every class.
+ * <p>
+ * The patterns produced by {@link JacocoConsoleReporterMojo#convertExclusionToPattern} fall in three groups:
+ * <ul>
+ *     <li>exact class names ({@code com/example/Foo}), kept in a hash set,</li>
+ *     <li>prefixes ({@code com/example/generated/**}{@code /*}), kept in a character trie,</li>
+ *     <li>everything else, combined into a single alternation.</li>
+ * </ul>
+ * A lookup therefore costs about the length of the class name, plus one regex match when real wildcards are in use.
+ * The set itself still holds the original {@link Pattern} objects.
+ */
+public class ExclusionPatternSet extends AbstractSet<Pattern> {
+    private static final String ANY_DIRECTORIES = "(?:[^/]*/)*";
+    private static final String ANY_NAME = "[^/]*";
+    private static final String ESCAPED_DOT = "\\.";
+
+    private final Set<Pattern> patterns = new HashSet<>();
+    private volatile Lookup lookup;
+
+    @Override
+    public synchronized boolean add(Pattern pattern) {
+        boolean added = patterns.add(pattern);
+        if (added) {
+            lookup = null;
+        }
+        return added;
+    }
+
+    @Override
+    public synchronized boolean remove(Object pattern) {
+        boolean removed = patterns.remove(pattern);
+        if (removed) {
+            lookup = null;
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized void clear() {
+        patterns.clear();
+        lookup = null;
+    }
+
+    @Override
+    public synchronized boolean contains(Object pattern) {
+        return patterns.contains(pattern);
+    }
+
+    @Override
+    public synchronized int size() {
+        return patterns.size();
+    }
+
+    @Override
+    public synchronized @NotNull Iterator<Pattern> iterator() {
+        Iterator<Pattern> iterator = new ArrayList<>(patterns).iterator();
+        return new Iterator<Pattern>() {
+            private Pattern current;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Pattern next() {
+                current = iterator.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                ExclusionPatternSet.this.remove(current);
+            }
+        };
+    }
+
+    /**
+     * Checks whether any of the patterns matches the whole name.
+     */
+    public boolean matches(@NotNull String name) {
+        Lookup current = lookup;
+        if (current == null) {
+            current = buildLookup();
+        }
+        return current.matches(name);
+    }
+
+    private synchronized @NotNull Lookup buildLookup() {
+        if (lookup == null) {
+            lookup = new Lookup(patterns);
+        }
+        return lookup;
+    }
+
+    /**
+     * Decodes a regex made of literal characters, escaped dots and the wildcards the JaCoCo conversion produces.
+     *
+     * @return The literal text and its trailing wildcard (empty for an exact name), or null if the regex is anything else
+     */
+    static String[] classify(@NotNull Pattern pattern) {
+        String regex = pattern.pattern();
+        if (pattern.flags() != 0 || !regex.startsWith("^") || !regex.endsWith("$") || regex.endsWith("\\$")) {
+            return null;
+        }
+
+        String body = regex.substring(1, regex.length() - 1);
+        String suffix = "";
+        if (body.endsWith(ANY_DIRECTORIES + ANY_NAME)) {
+            suffix = ANY_DIRECTORIES + ANY_NAME;
+            body = body.substring(0, body.length() - suffix.length());
+        }
+
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (body.startsWith(ESCAPED_DOT, i)) {
+                literal.append('.');
+                i++;
+            } else if ("\\[](){}.*+?^$|".indexOf(c) >= 0) {
+                return null;
+            } else {
+                literal.append(c);
+            }
+        }
+
+        return new String[]{literal.toString(), suffix};
+    }
+
+    /**
+     * Immutable lookup structure for one snapshot of the patterns
+     */
+    static class Lookup {
+        final Set<String> exactNames = new HashSet<>();
+        final PrefixTrie prefixes = new PrefixTrie();
+        final List<Pattern> wildcards = new ArrayList<>();
+
+        Lookup(@NotNull Set<Pattern> patterns) {
+            List<String> combinable = new ArrayList<>();
+            for (Pattern pattern : patterns) {
+                String[] classified = classify(pattern);
+                if (classified == null) {
+                    if (pattern.flags() == 0 && !pattern.pattern().matches(".*\\\\(?:[1-9]|k<).*")) {
+                        combinable.add("(?:" + pattern.pattern() + ")");
+                    } else {
+                        wildcards.add(pattern);
+                    }
+                } else if (classified[1].isEmpty()) {
+                    exactNames.add(classified[0]);
+                } else {
+                    prefixes.add(classified[0]);
+                }
+            }
+
+            if (!combinable.isEmpty()) {
+                wildcards.add(Pattern.compile(String.join("|", combinable)));
+            }
+        }
+
+        boolean matches(@NotNull String name) {
+            if (exactNames.contains(name) || prefixes.matchesPrefixOf(name)) {
+                return true;
+            }
+
+            for (Pattern wildcard : wildcards) {
+                if (wildcard.matcher(name).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Character trie answering "does any stored prefix start the given name"
+     */
+    static class PrefixTrie {
+        private final Map<Character, PrefixTrie> children = new HashMap<>();
+        private boolean terminal;
+
+        void add(@NotNull String prefix) {
+            PrefixTrie node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new PrefixTrie());
+            }
+            node.terminal = true;
+        }
+
+        boolean matchesPrefixOf(@NotNull String name) {
+            PrefixTrie node = this;
+            for (int i = 0; ; i++) {
+                if (node.terminal) {
+                    return true;
+                }
+                if (i == name.length()) {
+                    return false;
+                }
+
+                node = node.children.get(name.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+            }
+        }
+    }
+}
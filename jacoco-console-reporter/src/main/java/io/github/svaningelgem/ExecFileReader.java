@@ -0,0 +1,222 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.IncompatibleExecDataVersionException;
+import org.jacoco.core.data.SessionInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Predicate;
+
+/**
+ * Reads JaCoCo exec files straight from a {@link ByteBuffer}, as an alternative to {@code ExecutionDataReader}.
+ * <p>
+ * Large files are memory-mapped, smaller ones are read into the heap in one go. The block format is decoded without
+ * a stream in between: the probes come straight from their packed bits, and class names take an ASCII fast path.
+ * The accepted input and the errors raised are the same as for JaCoCo's own reader.
+ * <p>
+ * A {@link ProbeStore} as visitor receives the probes still packed.
+ * An optional class filter drops the execution data of uninteresting classes: their probes are skipped in the buffer
+ * without being decoded.
+ */
+public class ExecFileReader {
+    /**
+     * Files from this size on are memory-mapped instead of read
+     */
+    static final long MAP_THRESHOLD = 1L << 20;
+
+    private final ByteBuffer buffer;
+    private final IExecutionDataVisitor executionDataVisitor;
+    private final ISessionInfoVisitor sessionInfoVisitor;
+    private final @Nullable Predicate<String> classFilter;
+    private int classCount;
+
+    ExecFileReader(@NotNull ByteBuffer buffer, @NotNull IExecutionDataVisitor executionDataVisitor, @NotNull ISessionInfoVisitor sessionInfoVisitor, @Nullable Predicate<String> classFilter) {
+        this.buffer = buffer;
+        this.executionDataVisitor = executionDataVisitor;
+        this.sessionInfoVisitor = sessionInfoVisitor;
+        this.classFilter = classFilter;
+    }
+
+    /**
+     * Reads all blocks of an exec file. An empty file contains no data.
+     *
+     * @throws IOException if the file can't be read or is not a (compatible) exec file
+     */
+    public static void read(@NotNull File file, @NotNull IExecutionDataVisitor executionDataVisitor, @NotNull ISessionInfoVisitor sessionInfoVisitor) throws IOException {
+        read(file, executionDataVisitor, sessionInfoVisitor, null);
+    }
+
+    /**
+     * Reads all blocks of an exec file, only passing on the execution data of classes accepted by the filter.
+     *
+     * @param classFilter Tests the VM name of a class; null accepts all classes
+     * @throws IOException if the file can't be read or is not a (compatible) exec file
+     */
+    public static void read(@NotNull File file, @NotNull IExecutionDataVisitor executionDataVisitor, @NotNull ISessionInfoVisitor sessionInfoVisitor, @Nullable Predicate<String> classFilter) throws IOException {
+        read(file, executionDataVisitor, sessionInfoVisitor, classFilter, 0);
+    }
+
+    /**
+     * Reads the blocks from an offset on, e.g. the data JaCoCo appended to a file that was read before.
+     * Every append starts with a new header block, so the offset must be the former end of the file.
+     *
+     * @return The number of execution data entries read, including the ones dropped by the filter
+     */
+    static int read(@NotNull File file, @NotNull IExecutionDataVisitor executionDataVisitor, @NotNull ISessionInfoVisitor sessionInfoVisitor, @Nullable Predicate<String> classFilter, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ExecFileReader reader = new ExecFileReader(load(channel, offset), executionDataVisitor, sessionInfoVisitor, classFilter);
+            reader.read();
+            return reader.classCount;
+        }
+    }
+
+    private static @NotNull ByteBuffer load(@NotNull FileChannel channel, long offset) throws IOException {
+        long size = Math.max(0, channel.size() - offset);
+        if (size >= MAP_THRESHOLD && size <= Integer.MAX_VALUE) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        } else if (size > Integer.MAX_VALUE) {
+            throw new IOException("Exec file too large: " + size + " bytes");
+        }
+
+        channel.position(offset);
+        ByteBuffer heap = ByteBuffer.allocate((int) size);
+        while (heap.hasRemaining() && channel.read(heap) >= 0) {
+            // keep reading
+        }
+        heap.flip();
+        return heap;
+    }
+
+    void read() throws IOException {
+        try {
+            boolean firstBlock = true;
+            while (buffer.hasRemaining()) {
+                byte type = buffer.get();
+                if (firstBlock && type != ExecutionDataWriter.BLOCK_HEADER) {
+                    throw new IOException("Invalid execution data file.");
+                }
+                firstBlock = false;
+                readBlock(type);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("Unexpected end of execution data file.");
+        }
+    }
+
+    private void readBlock(byte type) throws IOException {
+        switch (type) {
+            case ExecutionDataWriter.BLOCK_HEADER:
+                readHeader();
+                break;
+            case ExecutionDataWriter.BLOCK_SESSIONINFO:
+                sessionInfoVisitor.visitSessionInfo(new SessionInfo(readUTF(), buffer.getLong(), buffer.getLong()));
+                break;
+            case ExecutionDataWriter.BLOCK_EXECUTIONDATA:
+                classCount++;
+                long id = buffer.getLong();
+                String name = readUTF();
+                if (classFilter != null && !classFilter.test(name)) {
+                    skipBooleanArray();
+                } else if (executionDataVisitor instanceof ProbeStore) {
+                    // Copy the packed bits as they are, without a boolean[] in between
+                    ((ProbeStore) executionDataVisitor).putPacked(id, name, readBooleanArrayLength(), buffer);
+                } else {
+                    executionDataVisitor.visitClassExecution(new ExecutionData(id, name, readBooleanArray()));
+                }
+                break;
+            default:
+                throw new IOException(String.format("Unknown block type %x.", type));
+        }
+    }
+
+    private void readHeader() throws IOException {
+        if (buffer.getChar() != ExecutionDataWriter.MAGIC_NUMBER) {
+            throw new IOException("Invalid execution data file.");
+        }
+        char version = buffer.getChar();
+        if (version != ExecutionDataWriter.FORMAT_VERSION) {
+            throw new IncompatibleExecDataVersionException(version);
+        }
+    }
+
+    /**
+     * Reads a string in the modified UTF-8 encoding of {@link java.io.DataInput#readUTF()}.
+     */
+    private @NotNull String readUTF() throws IOException {
+        int length = buffer.getChar();
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        int start = buffer.position();
+        char[] ascii = new char[length];
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(start + i);
+            if (b <= 0) {
+                return readModifiedUTF(start - 2, length);
+            }
+            ascii[i] = (char) b;
+        }
+        buffer.position(start + length);
+        return new String(ascii);
+    }
+
+    private @NotNull String readModifiedUTF(int offset, int length) throws IOException {
+        byte[] bytes = new byte[length + 2];
+        buffer.position(offset);
+        buffer.get(bytes);
+        return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+    }
+
+    private int readVarInt() {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = buffer.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private int readBooleanArrayLength() throws IOException {
+        int length = readVarInt();
+        if (length < 0 || (length + 7L) / 8 > buffer.remaining()) {
+            throw new EOFException("Unexpected end of execution data file.");
+        }
+        return length;
+    }
+
+    private void skipBooleanArray() throws IOException {
+        int length = readBooleanArrayLength();
+        buffer.position(buffer.position() + (int) ((length + 7L) / 8));
+    }
+
+    private boolean[] readBooleanArray() throws IOException {
+        int length = readBooleanArrayLength();
+
+        boolean[] probes = new boolean[length];
+        int bits = 0;
+        for (int i = 0; i < length; i++) {
+            if ((i & 7) == 0) {
+                bits = buffer.get();
+            }
+            probes[i] = (bits & 1) != 0;
+            bits >>>= 1;
+        }
+        return probes;
+    }
+}
@@ -0,0 +1,193 @@
+package io.github.svaningelgem;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.maven.plugin.logging.Log;
+import org.jacoco.core.internal.data.CRC64;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent snapshot of merged execution data, together with a manifest of the exec files it was merged from.
+ * <p>
+ * A manifest entry is keyed by the path of an exec file and remembers its size, modification time and a hash of its
+ * content. Files whose size and modification time are unchanged are not read again. JaCoCo appends to an existing
+ * exec file by default; a file that only grew and still starts with the hashed content only has its new blocks read.
+ * <p>
+ * Probes are merged with an OR, so the data of a file can't be taken out of the snapshot again. When a file was
+ * rewritten or removed, the snapshot is dropped and all files are read.
+ * <p>
+ * The snapshot only holds the classes that were analyzed when it was merged. It remembers a hash of their names and
+ * is dropped as well when another set of classes is analyzed.
+ */
+public class ExecSnapshot {
+    static final int MAGIC = 0x4A434553;
+    static final int FORMAT_VERSION = 2;
+
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, Input> inputs = new HashMap<>();
+    private long classNamesHash;
+    private @NotNull ProbeStore store = new ProbeStore();
+
+    /**
+     * Loads the snapshot from disk, see {@link StateFile}.
+     */
+    static @NotNull ExecSnapshot load(@NotNull File file, @NotNull Log log) {
+        ExecSnapshot snapshot = StateFile.read(file, MAGIC, FORMAT_VERSION, "exec snapshot", log, in -> {
+            ExecSnapshot loaded = new ExecSnapshot();
+            loaded.classNamesHash = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                loaded.inputs.put(path, new Input(in.readLong(), in.readLong(), in.readLong()));
+            }
+            loaded.store = ProbeStore.read(in);
+            return loaded;
+        });
+        return snapshot == null ? new ExecSnapshot() : snapshot;
+    }
+
+    /**
+     * Writes the merged data with the manifest of the files it was read from.
+     */
+    void save(@NotNull File file) throws IOException {
+        StateFile.write(file, MAGIC, FORMAT_VERSION, out -> {
+            out.writeLong(classNamesHash);
+
+            out.writeInt(inputs.size());
+            for (Map.Entry<String, Input> entry : inputs.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().size);
+                out.writeLong(entry.getValue().lastModified);
+                out.writeLong(entry.getValue().hash);
+            }
+            store.write(out);
+        });
+    }
+
+    /**
+     * Determines where reading has to start in each of the given exec files: at 0 for a file the snapshot doesn't
+     * know, at the former end for a file that was appended to, and at the end for an unchanged file.
+     * The manifest is updated to the current state of the files.
+     *
+     * @param files          Existing exec files that make up the merged data
+     * @param classNamesHash Hash of the classes whose data is kept, see {@link #hashClassNames}
+     * @return The offset per file, or null if the snapshot can't be used and all files must be read completely
+     */
+    @Nullable Map<File, Long> plan(@NotNull List<File> files, long classNamesHash) throws IOException {
+        Map<String, Input> current = new HashMap<>();
+        Map<File, Long> offsets = new HashMap<>();
+        boolean usable = this.classNamesHash == classNamesHash;
+        this.classNamesHash = classNamesHash;
+
+        for (File file : files) {
+            long size = file.length();
+            long lastModified = file.lastModified();
+            Input previous = inputs.get(file.getPath());
+
+            if (previous != null && previous.size == size && previous.lastModified == lastModified) {
+                current.put(file.getPath(), previous);
+                offsets.put(file, size);
+            } else if (previous != null && previous.size < size) {
+                long[] hashes = hash(file, previous.size, size);
+                usable &= hashes[0] == previous.hash;
+                current.put(file.getPath(), new Input(size, lastModified, hashes[1]));
+                offsets.put(file, previous.size);
+            } else {
+                usable &= previous == null;
+                current.put(file.getPath(), new Input(size, lastModified, hash(file, size)[0]));
+                offsets.put(file, 0L);
+            }
+        }
+        usable &= current.keySet().containsAll(inputs.keySet());
+
+        inputs.clear();
+        inputs.putAll(current);
+        if (!usable) {
+            store = new ProbeStore();
+            return null;
+        }
+        return offsets;
+    }
+
+    /**
+     * The merged data of the snapshot, see {@link #setStore}
+     */
+    @NotNull ProbeStore getStore() {
+        return store;
+    }
+
+    /**
+     * Replaces the merged data with the data of all files passed to the last {@link #plan}.
+     */
+    void setStore(@NotNull ProbeStore store) {
+        this.store = store;
+    }
+
+    int size() {
+        return inputs.size();
+    }
+
+    /**
+     * Hashes a set of VM class names independent of its order; null (all classes) hashes to 0
+     */
+    static long hashClassNames(@Nullable Set<String> classNames) {
+        if (classNames == null) {
+            return 0;
+        }
+
+        StringBuilder names = new StringBuilder();
+        for (String className : new TreeSet<>(classNames)) {
+            names.append(className).append('\n');
+        }
+        return CRC64.classId(names.toString().getBytes(StandardCharsets.UTF_8)) | 1;
+    }
+
+    /**
+     * Hashes the first bytes of a file, once for every length given in ascending order.
+     */
+    static long[] hash(@NotNull File file, long... lengths) throws IOException {
+        long[] hashes = new long[lengths.length];
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        long position = 0;
+
+        try (InputStream in = new FileInputStream(file)) {
+            for (int i = 0; i < lengths.length; i++) {
+                while (position < lengths[i]) {
+                    int read = in.read(buffer, 0, (int) Math.min(buffer.length, lengths[i] - position));
+                    if (read < 0) {
+                        // The file shrank in the meantime: -1 never matches a CRC32 value
+                        Arrays.fill(hashes, -1L);
+                        return hashes;
+                    }
+                    crc.update(buffer, 0, read);
+                    position += read;
+                }
+                hashes[i] = crc.getValue();
+            }
+        }
+        return hashes;
+    }
+
+    @RequiredArgsConstructor
+    static class Input {
+        final long size;
+        final long lastModified;
+        final long hash;
+    }
+}
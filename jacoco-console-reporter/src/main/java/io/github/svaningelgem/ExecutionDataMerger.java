@@ -1,7 +1,6 @@
 package io.github.svaningelgem;
 
 import org.jacoco.core.data.ExecutionData;
-import org.jacoco.core.data.ExecutionDataReader;
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.IExecutionDataVisitor;
 import org.jacoco.core.data.SessionInfoStore;
@@ -9,21 +8,69 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Handles merging execution data from multiple sources to prevent duplicated coverage counts
+ * <p>
+ * With more than one thread, the files are decoded concurrently into one store per chunk of files.
+ * Those stores are merged afterwards in file order, with the same probe-OR semantics as reading them one by one.
+ * <p>
+ * When the names of the analyzed classes are known up front, the entries of all other classes (JDK, libraries,
+ * test frameworks) are dropped while reading. Filtering by name rather than by class id keeps the entries JaCoCo
+ * needs to flag a class whose bytes differ from the ones that were executed.
  */
 public class ExecutionDataMerger {
-    final Set<Long> processedClasses = new HashSet<>();
-
-    // Store to hold merged execution data
-    final ExecutionDataStore mergedStore = new ExecutionDataStore();
+    // Store to hold merged execution data, converted to JaCoCo's store when loading is done
+    final ProbeStore mergedStore = new ProbeStore();
     final SessionInfoStore sessionInfoStore = new SessionInfoStore();
 
+    private final int threads;
+    private final @Nullable Set<String> classNames;
+    private final @Nullable ReportTimings timings;
+    private final AtomicInteger skippedEntries = new AtomicInteger();
+    private int readFileCount = -1;
+
+    public ExecutionDataMerger() {
+        this(1);
+    }
+
+    /**
+     * @param threads Maximum number of threads decoding exec files
+     */
+    public ExecutionDataMerger(int threads) {
+        this(threads, null);
+    }
+
+    /**
+     * @param threads    Maximum number of threads decoding exec files
+     * @param classNames VM names of the classes that will be analyzed; the data of all other classes is skipped while
+     *                   reading. Null keeps everything.
+     */
+    public ExecutionDataMerger(int threads, @Nullable Set<String> classNames) {
+        this(threads, classNames, null);
+    }
+
+    /**
+     * @param threads    Maximum number of threads decoding exec files
+     * @param classNames See {@link #ExecutionDataMerger(int, Set)}
+     * @param timings    Timings the work of the decoding threads counts for, or null to not measure it
+     */
+    public ExecutionDataMerger(int threads, @Nullable Set<String> classNames, @Nullable ReportTimings timings) {
+        this.threads = threads;
+        this.classNames = classNames;
+        this.timings = timings;
+    }
+
     /**
      * Loads execution data from multiple files with deduplication
      *
@@ -32,34 +79,127 @@ public class ExecutionDataMerger {
      * @throws IOException if there are issues reading the exec files
      */
     public @NotNull ExecutionDataStore loadExecutionData(@NotNull Set<File> execFiles) throws IOException {
-        for (File execFile : execFiles) {
-            loadExecFile(execFile, new MergingVisitor(), sessionInfoStore);
+        List<File> files = execFiles.stream()
+                .sorted(Comparator.nullsFirst(Comparator.naturalOrder()))
+                .collect(Collectors.toList());
+
+        load(files, null, classNames == null ? null : this::isAnalyzed);
+        return mergedStore.toExecutionDataStore();
+    }
+
+    /**
+     * Loads execution data on top of a snapshot of an earlier merge: only the new and appended parts of the exec files
+     * are read. The class names given to the constructor filter while reading, as without snapshot; a snapshot of
+     * another set of classes is dropped. The snapshot is updated with the result.
+     *
+     * @param execFiles Set of JaCoCo exec files to process
+     * @param snapshot  Snapshot of an earlier merge, see {@link ExecSnapshot}
+     * @return Merged execution data store
+     * @throws IOException if there are issues reading the exec files
+     */
+    public @NotNull ExecutionDataStore loadExecutionData(@NotNull Set<File> execFiles, @NotNull ExecSnapshot snapshot) throws IOException {
+        List<File> files = execFiles.stream()
+                .filter(file -> file != null && file.exists())
+                .sorted()
+                .collect(Collectors.toList());
+
+        Map<File, Long> offsets = snapshot.plan(files, ExecSnapshot.hashClassNames(classNames));
+        if (offsets != null) {
+            mergedStore.putAll(snapshot.getStore());
+            files = files.stream()
+                    .filter(file -> offsets.get(file) < file.length())
+                    .collect(Collectors.toList());
         }
 
-        return mergedStore;
+        load(files, offsets, classNames == null ? null : this::isAnalyzed);
+        readFileCount = files.size();
+        snapshot.setStore(mergedStore);
+
+        return mergedStore.toExecutionDataStore();
     }
 
     /**
-     * Loads an individual JaCoCo execution data file
+     * Reads the files into {@link #mergedStore}, each from its offset on (0 when no offsets are given)
+     */
+    private void load(@NotNull List<File> files, @Nullable Map<File, Long> offsets, @Nullable Predicate<String> classFilter) throws IOException {
+        if (threads <= 1 || files.size() <= 1) {
+            for (File execFile : files) {
+                loadExecFile(execFile, offsetOf(offsets, execFile), mergedStore, sessionInfoStore, classFilter);
+            }
+            return;
+        }
+
+        List<Callable<LoadedChunk>> tasks = new ArrayList<>();
+        for (List<File> chunk : ParallelTasks.chunks(files, threads)) {
+            tasks.add(() -> loadChunk(chunk, offsets, classFilter));
+        }
+
+        for (LoadedChunk chunk : ParallelTasks.run(threads, tasks, timings)) {
+            mergedStore.putAll(chunk.executionData);
+            chunk.sessionInfos.getInfos().forEach(sessionInfoStore::visitSessionInfo);
+        }
+    }
+
+    /**
+     * Decodes a consecutive range of exec files into a store of its own
+     */
+    private @NotNull LoadedChunk loadChunk(@NotNull List<File> chunk, @Nullable Map<File, Long> offsets, @Nullable Predicate<String> classFilter) throws IOException {
+        LoadedChunk loaded = new LoadedChunk();
+        for (File execFile : chunk) {
+            loadExecFile(execFile, offsetOf(offsets, execFile), loaded.executionData, loaded.sessionInfos, classFilter);
+        }
+        return loaded;
+    }
+
+    private static long offsetOf(@Nullable Map<File, Long> offsets, @Nullable File execFile) {
+        return offsets == null ? 0 : offsets.get(execFile);
+    }
+
+    /**
+     * Loads an individual JaCoCo execution data file, see {@link ExecFileReader}
      */
     void loadExecFile(@Nullable File execFile, IExecutionDataVisitor executionDataStore, SessionInfoStore sessionInfoStore) throws IOException {
+        loadExecFile(execFile, 0, executionDataStore, sessionInfoStore, classNames == null ? null : this::isAnalyzed);
+    }
+
+    private void loadExecFile(@Nullable File execFile, long offset, IExecutionDataVisitor executionDataStore, SessionInfoStore sessionInfoStore, @Nullable Predicate<String> classFilter) throws IOException {
         if (execFile == null || !execFile.exists()) {
             return;
         }
 
-        try (FileInputStream in = new FileInputStream(execFile)) {
-            ExecutionDataReader reader = new ExecutionDataReader(in);
-            reader.setExecutionDataVisitor(executionDataStore);
-            reader.setSessionInfoVisitor(sessionInfoStore);
-            reader.read();
+        try (FlightRecorderEvent.ExecFileRead event = FlightRecorderEvents.execFileRead(execFile)) {
+            event.setBytes(Math.max(0, execFile.length() - offset));
+            event.setClasses(ExecFileReader.read(execFile, executionDataStore, sessionInfoStore, classFilter, offset));
+        }
+    }
+
+    private boolean isAnalyzed(@NotNull String className) {
+        if (classNames.contains(className)) {
+            return true;
         }
+        skippedEntries.incrementAndGet();
+        return false;
     }
 
     /**
      * Get the number of unique classes processed
      */
     public int getUniqueClassCount() {
-        return processedClasses.size();
+        return mergedStore.size();
+    }
+
+    /**
+     * Get the number of exec files that had to be read when loading on top of a snapshot, or -1 without snapshot
+     */
+    public int getReadFileCount() {
+        return readFileCount;
+    }
+
+    /**
+     * Get the number of exec file entries that were skipped because their class is not analyzed
+     */
+    public int getSkippedEntryCount() {
+        return skippedEntries.get();
     }
 
     /**
@@ -70,19 +210,15 @@ public class ExecutionDataMerger {
             return;
         }
 
-        processedClasses.add(data.getId());
-
-        // Add to store (JaCoCo will handle the merging)
+        // Add to store (probes are OR-ed with earlier data of the same class)
         mergedStore.put(data);
     }
 
     /**
-     * Custom visitor that intelligently merges execution data
+     * Execution data decoded by one worker thread
      */
-    class MergingVisitor implements IExecutionDataVisitor {
-        @Override
-        public void visitClassExecution(ExecutionData data) {
-            mergeExecData(data);
-        }
+    static class LoadedChunk {
+        final ProbeStore executionData = new ProbeStore();
+        final SessionInfoStore sessionInfos = new SessionInfoStore();
     }
 }
\ No newline at end of file
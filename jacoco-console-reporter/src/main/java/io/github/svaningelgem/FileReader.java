@@ -1,6 +1,7 @@
 package io.github.svaningelgem;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -18,6 +19,13 @@ public class FileReader {
         return new String(Files.readAllBytes(path), cs);
     }
 
+    /**
+     * Reads the package declaration of a Java source file, or null if there is none.
+     */
+    public @Nullable String readPackageName(Path path) throws IOException {
+        return PackageDeclarationScanner.scan(path);
+    }
+
     public String canonicalPath(@NotNull File f) throws IOException {
         return f.getCanonicalPath();
     }
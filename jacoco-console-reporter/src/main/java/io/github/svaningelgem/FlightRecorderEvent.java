@@ -0,0 +1,69 @@
+package io.github.svaningelgem;
+
+/**
+ * A JDK Flight Recorder event that is being timed, created by {@link FlightRecorderEvents}.
+ * The event is committed when it is closed.
+ */
+public interface FlightRecorderEvent extends AutoCloseable {
+    /**
+     * An event that is never recorded: JFR is missing (Java 8) or the event is not enabled
+     */
+    Disabled DISABLED = new Disabled();
+
+    @Override
+    void close();
+
+    /**
+     * Reading one exec file
+     */
+    interface ExecFileRead extends FlightRecorderEvent {
+        void setBytes(long bytes);
+
+        void setClasses(int classes);
+    }
+
+    /**
+     * Analyzing one class file
+     */
+    interface ClassAnalysis extends FlightRecorderEvent {
+        void setBytes(int bytes);
+
+        void setCached(boolean cached);
+    }
+
+    /**
+     * A batch of exclusion checks, e.g. all class files of a directory
+     */
+    interface ExclusionChecks extends FlightRecorderEvent {
+        void check(boolean excluded);
+    }
+
+    class Disabled implements ExecFileRead, ClassAnalysis, ExclusionChecks {
+        private Disabled() {
+        }
+
+        @Override
+        public void setBytes(long bytes) {
+        }
+
+        @Override
+        public void setClasses(int classes) {
+        }
+
+        @Override
+        public void setBytes(int bytes) {
+        }
+
+        @Override
+        public void setCached(boolean cached) {
+        }
+
+        @Override
+        public void check(boolean excluded) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.svaningelgem;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+
+/**
+ * Creates the JDK Flight Recorder events of the reporter.
+ * <p>
+ * The plugin runs on Java 8, which has no JFR API: this version never records anything. The multi-release jar holds
+ * a Java 11 version of this class (src/main/java11) that records the events when a recording enables them, e.g. with
+ * {@code MAVEN_OPTS=-XX:StartFlightRecording}.
+ */
+public class FlightRecorderEvents {
+    private FlightRecorderEvents() {
+    }
+
+    public static @NotNull FlightRecorderEvent.ExecFileRead execFileRead(@NotNull File execFile) {
+        return FlightRecorderEvent.DISABLED;
+    }
+
+    public static @NotNull FlightRecorderEvent.ClassAnalysis classAnalysis(@NotNull String location) {
+        return FlightRecorderEvent.DISABLED;
+    }
+
+    /**
+     * @param batch    What is checked, e.g. the classes directory
+     * @param patterns Number of exclusion patterns in use
+     */
+    public static @NotNull FlightRecorderEvent.ExclusionChecks exclusionChecks(@NotNull String batch, int patterns) {
+        return FlightRecorderEvent.DISABLED;
+    }
+}
@@ -0,0 +1,355 @@
+package io.github.svaningelgem;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.maven.plugin.logging.Log;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Persistent state of the incremental report: a fingerprint of every class file of the previous report, and the
+ * source file nodes of its tree.
+ * <p>
+ * A class file is unchanged when its size and modification time, and the probes the execution data holds for its
+ * class id, are the same as before. Unchanged class files are not read at all. A source file is dirty when any of its
+ * class files changed, appeared or disappeared: all its classes are analyzed again (mostly restored from the
+ * {@link AnalysisCache}) and its node is replaced in the tree of the previous report.
+ * <p>
+ * The state belongs to the settings it was made with. Other exclusions, another JaCoCo version or other tree settings
+ * start from an empty state, i.e. a full report.
+ */
+public class IncrementalReport {
+    static final int MAGIC = 0x4A434952;
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * Class files by location
+     */
+    private final Map<String, ClassState> classes = new HashMap<>();
+
+    /**
+     * Source file nodes of the tree by source file, e.g. "com/example/Foo.java"
+     */
+    private final Map<String, SourceFileNode> sourceFiles = new TreeMap<>();
+
+    private final String settings;
+
+    IncrementalReport(@NotNull String settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Loads the state from disk, see {@link StateFile}. A state made with other settings is ignored as well.
+     *
+     * @param settings Everything besides the class files that the tree depends on
+     */
+    static @NotNull IncrementalReport load(@NotNull File file, @NotNull String settings, @NotNull Log log) {
+        IncrementalReport report = StateFile.read(file, MAGIC, FORMAT_VERSION, "incremental report state", log, in -> {
+            if (!settings.equals(readString(in))) {
+                log.debug("Ignoring incremental report state made with other settings: " + file);
+                return null;
+            }
+
+            IncrementalReport loaded = new IncrementalReport(settings);
+            int classCount = in.readInt();
+            for (int i = 0; i < classCount; i++) {
+                String location = in.readUTF();
+                loaded.classes.put(location, new ClassState(in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readBoolean() ? in.readUTF() : null));
+            }
+
+            int sourceFileCount = in.readInt();
+            for (int i = 0; i < sourceFileCount; i++) {
+                String sourceFile = in.readUTF();
+                CoverageMetrics metrics = new CoverageMetrics(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+                String missingLines = in.readBoolean() ? readString(in) : null;
+                loaded.sourceFiles.put(sourceFile, new SourceFileNode(fileName(sourceFile), metrics, missingLines));
+            }
+            return loaded;
+        });
+        return report == null ? new IncrementalReport(settings) : report;
+    }
+
+    /**
+     * Writes the state.
+     */
+    void save(@NotNull File file) throws IOException {
+        StateFile.write(file, MAGIC, FORMAT_VERSION, out -> {
+            writeString(out, settings);
+
+            out.writeInt(classes.size());
+            for (Map.Entry<String, ClassState> entry : classes.entrySet()) {
+                ClassState state = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(state.size);
+                out.writeLong(state.lastModified);
+                out.writeLong(state.classId);
+                out.writeLong(state.probeHash);
+                out.writeBoolean(state.sourceFile != null);
+                if (state.sourceFile != null) {
+                    out.writeUTF(state.sourceFile);
+                }
+            }
+
+            out.writeInt(sourceFiles.size());
+            for (Map.Entry<String, SourceFileNode> entry : sourceFiles.entrySet()) {
+                CoverageMetrics metrics = entry.getValue().getMetrics();
+                out.writeUTF(entry.getKey());
+                for (int value : new int[]{metrics.totalClasses, metrics.coveredClasses, metrics.totalMethods, metrics.coveredMethods,
+                        metrics.totalLines, metrics.coveredLines, metrics.totalBranches, metrics.coveredBranches}) {
+                    out.writeInt(value);
+                }
+                String missingLines = entry.getValue().getMissingLines();
+                out.writeBoolean(missingLines != null);
+                if (missingLines != null) {
+                    writeString(out, missingLines);
+                }
+            }
+        });
+    }
+
+    /**
+     * Compares the class files with those of the previous report. The class files that changed or appeared are read
+     * to find their class id and source file.
+     *
+     * @return The source files whose node has to be replaced, and the class files to analyze for them
+     */
+    @NotNull Changes compare(@NotNull List<ClassFile> classFiles, @NotNull ExecutionDataStore executionDataStore) {
+        Map<Path, BasicFileAttributes> attributes = new HashMap<>();
+        Map<String, ClassState> current = new HashMap<>();
+        Set<String> dirtySourceFiles = new HashSet<>();
+        List<ClassFile> unchanged = new ArrayList<>();
+        Changes changes = new Changes();
+
+        for (ClassFile classFile : classFiles) {
+            String location = classFile.getLocation();
+            BasicFileAttributes fileAttributes = attributes.computeIfAbsent(classFile.getPath(), IncrementalReport::readAttributes);
+            long size = fileAttributes == null ? -1 : fileAttributes.size();
+            long lastModified = fileAttributes == null ? -1 : fileAttributes.lastModifiedTime().toMillis();
+
+            ClassState previous = classes.get(location);
+            if (previous != null && size >= 0 && previous.size == size && previous.lastModified == lastModified
+                    && previous.probeHash == AnalysisCache.probeHash(executionDataStore.get(previous.classId))) {
+                current.put(location, previous);
+                unchanged.add(classFile);
+                changes.unchangedClassIds.add(previous.classId);
+                continue;
+            }
+
+            ClassState state = scan(classFile, size, lastModified, executionDataStore);
+            current.put(location, state);
+            changes.classFiles.add(classFile);
+            addSourceFile(dirtySourceFiles, state);
+            if (previous != null) {
+                addSourceFile(dirtySourceFiles, previous);
+            }
+        }
+
+        for (Map.Entry<String, ClassState> entry : classes.entrySet()) {
+            if (!current.containsKey(entry.getKey())) {
+                addSourceFile(dirtySourceFiles, entry.getValue());
+            }
+        }
+
+        // The unchanged classes of a dirty source file are needed to compute its node again
+        for (ClassFile classFile : unchanged) {
+            ClassState state = current.get(classFile.getLocation());
+            if (state.sourceFile != null && dirtySourceFiles.contains(state.sourceFile)) {
+                changes.classFiles.add(classFile);
+                changes.unchangedClassIds.remove(state.classId);
+            }
+        }
+
+        classes.clear();
+        classes.putAll(current);
+        changes.sourceFiles.addAll(dirtySourceFiles);
+        return changes;
+    }
+
+    private static void addSourceFile(@NotNull Set<String> sourceFiles, @NotNull ClassState state) {
+        if (state.sourceFile != null) {
+            sourceFiles.add(state.sourceFile);
+        }
+    }
+
+    private static @Nullable BasicFileAttributes readAttributes(@NotNull Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the class id and the source file of a class. A class that can't be read keeps an invalid size, so it is
+     * read again next time; the analysis reports the error.
+     */
+    private static @NotNull ClassState scan(@NotNull ClassFile classFile, long size, long lastModified, @NotNull ExecutionDataStore executionDataStore) {
+        byte[] bytes;
+        try {
+            bytes = classFile.readBytes();
+        } catch (IOException e) {
+            return new ClassState(-1, lastModified, 0, AnalysisCache.NO_PROBES, null);
+        }
+
+        long classId = CRC64.classId(bytes);
+        String sourceFile;
+        try {
+            sourceFile = sourceFile(bytes);
+        } catch (RuntimeException e) {
+            return new ClassState(-1, lastModified, classId, AnalysisCache.NO_PROBES, null);
+        }
+        return new ClassState(size, lastModified, classId, AnalysisCache.probeHash(executionDataStore.get(classId)), sourceFile);
+    }
+
+    /**
+     * The source file a class was compiled from, as "package/File.java", or null without debug information
+     */
+    static @Nullable String sourceFile(byte[] classBytes) {
+        ClassReader reader = new ClassReader(classBytes);
+        String className = reader.getClassName();
+        String[] source = new String[1];
+        reader.accept(new ClassVisitor(InstrSupport.ASM_API_VERSION) {
+            @Override
+            public void visitSource(String file, String debug) {
+                source[0] = file;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+
+        if (source[0] == null) {
+            return null;
+        }
+        int slash = className.lastIndexOf('/');
+        return (slash < 0 ? "" : className.substring(0, slash)) + "/" + source[0];
+    }
+
+    /**
+     * Builds the tree of the previous report
+     */
+    @NotNull DirectoryNode buildTree() {
+        DirectoryNode root = new DirectoryNode("");
+        for (Map.Entry<String, SourceFileNode> entry : sourceFiles.entrySet()) {
+            directory(root, packageName(entry.getKey()), true).getSourceFiles().add(entry.getValue());
+        }
+        root.aggregate();
+        return root;
+    }
+
+    /**
+     * Replaces the nodes of the dirty source files in the tree, and aggregates its metrics again.
+     * A dirty source file without a new node, e.g. because its classes are gone, is removed.
+     *
+     * @param root      The tree of {@link #buildTree()}
+     * @param dirty     The source files that were analyzed again
+     * @param fresh     Their new nodes, see {@link CoverageTreeBuilder#buildSourceFiles()}
+     */
+    void patch(@NotNull DirectoryNode root, @NotNull Collection<String> dirty, @NotNull Map<String, SourceFileNode> fresh) {
+        Set<String> patched = new HashSet<>(dirty);
+        patched.addAll(fresh.keySet());
+        for (String sourceFile : patched) {
+            SourceFileNode node = fresh.get(sourceFile);
+            DirectoryNode directory = directory(root, packageName(sourceFile), node != null);
+            if (directory != null) {
+                String fileName = fileName(sourceFile);
+                directory.getSourceFiles().removeIf(file -> file.getFileName().equals(fileName));
+            }
+
+            if (node == null) {
+                sourceFiles.remove(sourceFile);
+            } else {
+                directory.getSourceFiles().add(node);
+                sourceFiles.put(sourceFile, node);
+            }
+        }
+        root.aggregate();
+    }
+
+    private static @Nullable DirectoryNode directory(@NotNull DirectoryNode root, @NotNull String packageName, boolean create) {
+        DirectoryNode current = root;
+        for (String component : packageName.split("/")) {
+            current = create
+                    ? current.getSubdirectories().computeIfAbsent(component, DirectoryNode::new)
+                    : current.getSubdirectories().get(component);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    private static @NotNull String packageName(@NotNull String sourceFile) {
+        return sourceFile.substring(0, sourceFile.lastIndexOf('/'));
+    }
+
+    private static @NotNull String fileName(@NotNull String sourceFile) {
+        return sourceFile.substring(sourceFile.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Writes a string of any length, unlike {@link DataOutputStream#writeUTF}
+     */
+    private static void writeString(@NotNull DataOutputStream out, @NotNull String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static @NotNull String readString(@NotNull DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    int size() {
+        return classes.size();
+    }
+
+    /**
+     * Outcome of {@link #compare}
+     */
+    static class Changes {
+        /**
+         * The class files to analyze: the changed ones, and the unchanged ones of the dirty source files
+         */
+        final List<ClassFile> classFiles = new ArrayList<>();
+
+        /**
+         * The source files whose node has to be replaced
+         */
+        final Set<String> sourceFiles = new HashSet<>();
+
+        /**
+         * Class ids of the class files that are not analyzed, so their analysis cache entries are kept
+         */
+        final Set<Long> unchangedClassIds = new HashSet<>();
+    }
+
+    @RequiredArgsConstructor
+    static class ClassState {
+        final long size;
+        final long lastModified;
+        final long classId;
+        final long probeHash;
+        final @Nullable String sourceFile;
+    }
+}
@@ -1,6 +1,8 @@
 package io.github.svaningelgem;
 
+import lombok.RequiredArgsConstructor;
 import lombok.var;
+import org.apache.maven.execution.BuildFailure;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Plugin;
 import org.apache.maven.model.PluginExecution;
@@ -12,45 +14,47 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
-import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.JaCoCo;
 import org.jacoco.core.analysis.CoverageBuilder;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ICoverageVisitor;
 import org.jacoco.core.analysis.IPackageCoverage;
 import org.jacoco.core.analysis.ISourceFileCoverage;
 import org.jacoco.core.data.ExecutionDataStore;
-import org.jacoco.report.IReportVisitor;
-import org.jacoco.report.MultiSourceFileLocator;
-import org.jacoco.report.xml.XMLFormatter;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
-import java.util.regex.Matcher;
+import java.util.function.IntUnaryOperator;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * Generates a console-based coverage report from JaCoCo execution data.
@@ -59,9 +63,13 @@ import java.util.regex.Pattern;
  */
 @Mojo(name = "report", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
 public class JacocoConsoleReporterMojo extends AbstractMojo {
-    private final Pattern PACKAGE_PATTERN = Pattern.compile("(?:^|\\*/)\\s*package\\s+([^;]+);", Pattern.DOTALL | Pattern.MULTILINE);
     private final String PROPERTY_PREFIX = "jacoco.reporter.";
 
+    /**
+     * Name of the bundle that holds the coverage of all modules
+     */
+    static final String BUNDLE_NAME = "Project";
+
     /**
      * Defer console reporting until the final module in multi-module builds.
      * When true, accumulates coverage data but only reports at the end.
@@ -142,10 +150,124 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
 
     /**
      * Target file path for the generated XML coverage report.
+     * The report is gzipped when the file name ends in ".gz", e.g. coverage.xml.gz.
      */
     @Parameter(defaultValue = "${session.executionRootDirectory}/coverage.xml", property = PROPERTY_PREFIX + "xmlOutputFile")
     File xmlOutputFile;
 
+    /**
+     * Number of threads used to read the execution data and to analyze the class files.
+     * Zero or less uses one thread per available processor.
+     */
+    @Parameter(defaultValue = "0", property = PROPERTY_PREFIX + "analysisThreads")
+    int analysisThreads;
+
+    /**
+     * Reuse the analysis results of classes whose bytes and execution data did not change since the previous build.
+     */
+    @Parameter(defaultValue = "true", property = PROPERTY_PREFIX + "useAnalysisCache")
+    boolean useAnalysisCache;
+
+    /**
+     * File in which the analysis results are kept between builds.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/jacoco-console-reporter/analysis.cache", property = PROPERTY_PREFIX + "analysisCacheFile")
+    File analysisCacheFile;
+
+    /**
+     * Restore classes without execution data from the analysis cache, even when they were cached while they had
+     * execution data. Their coverage is zero, so only their structure is needed, and that only depends on the class bytes.
+     */
+    @Parameter(defaultValue = "true", property = PROPERTY_PREFIX + "reuseAnalysisForUnexecutedClasses")
+    boolean reuseAnalysisForUnexecutedClasses;
+
+    /**
+     * Reuse the package declarations of build directory sources whose size and modification time did not change
+     * since the previous build. Only relevant when {@link #ignoreFilesInBuildDirectory} is enabled.
+     */
+    @Parameter(defaultValue = "true", property = PROPERTY_PREFIX + "useBuildDirectoryIndex")
+    boolean useBuildDirectoryIndex;
+
+    /**
+     * File in which the package declarations of the build directory sources are kept between builds.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/jacoco-console-reporter/build-directory.index", property = PROPERTY_PREFIX + "buildDirectoryIndexFile")
+    File buildDirectoryIndexFile;
+
+    /**
+     * Analyze the classes of each deferred module in the background as soon as the module finishes, so the last
+     * module mostly reuses those results instead of analyzing everything at the end of the build.
+     */
+    @Parameter(defaultValue = "false", property = PROPERTY_PREFIX + "pipelineAnalysis")
+    boolean pipelineAnalysis;
+
+    /**
+     * Only keep the execution data of the classes that are analyzed. The entries of all other classes in the exec files
+     * (JDK, libraries, test frameworks) are skipped while reading.
+     */
+    @Parameter(defaultValue = "true", property = PROPERTY_PREFIX + "filterExecutionData")
+    boolean filterExecutionData;
+
+    /**
+     * Keep the merged execution data in a snapshot between builds, so exec files that did not change are not read
+     * again and exec files JaCoCo appended to only have their new data read. With {@link #filterExecutionData}, the
+     * snapshot only holds the analyzed classes and is rebuilt when they change.
+     */
+    @Parameter(defaultValue = "true", property = PROPERTY_PREFIX + "useExecSnapshot")
+    boolean useExecSnapshot;
+
+    /**
+     * File in which the merged execution data is kept between builds.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/jacoco-console-reporter/exec.snapshot", property = PROPERTY_PREFIX + "execSnapshotFile")
+    File execSnapshotFile;
+
+    /**
+     * Only analyze the source files whose class files or execution data changed since the previous build, and patch
+     * them into the tree of that build. Not used when the XML report is written, as that needs every class.
+     */
+    @Parameter(defaultValue = "false", property = PROPERTY_PREFIX + "incrementalReport")
+    boolean incrementalReport;
+
+    /**
+     * File in which the class file fingerprints and the tree of the incremental report are kept between builds.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/jacoco-console-reporter/incremental.state", property = PROPERTY_PREFIX + "incrementalReportFile")
+    File incrementalReportFile;
+
+    /**
+     * Also analyze the classes in jar and war files found in the classes directories, including the jars nested in them.
+     */
+    @Parameter(defaultValue = "false", property = PROPERTY_PREFIX + "analyzeArchives")
+    boolean analyzeArchives;
+
+    /**
+     * Jar and war files whose classes are analyzed as well, e.g. the shaded jar or war this module builds.
+     * Of a war or Spring Boot jar, only the classes in WEB-INF/classes or BOOT-INF/classes are analyzed, plus the
+     * nested jars of the reactor's own modules and those matching {@link #nestedArchives}.
+     */
+    @Parameter(property = PROPERTY_PREFIX + "archives")
+    List<File> archives;
+
+    /**
+     * File names of jars nested in an archive (WEB-INF/lib, BOOT-INF/lib) whose classes are analyzed as well, besides
+     * the jars of the reactor's own modules, e.g. "core-*.jar". "*" and "?" are wildcards.
+     */
+    @Parameter(property = PROPERTY_PREFIX + "nestedArchives")
+    List<String> nestedArchives;
+
+    /**
+     * Log the wall time, CPU time and allocations of every phase of the report, and write them to {@link #reportTimingsFile}.
+     */
+    @Parameter(defaultValue = "false", property = PROPERTY_PREFIX + "reportTimings")
+    boolean reportTimings;
+
+    /**
+     * JSON file with the timings of the report phases.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/jacoco-console-reporter/timings.json", property = PROPERTY_PREFIX + "reportTimingsFile")
+    File reportTimingsFile;
+
     /**
      * The Maven project.
      */
@@ -170,10 +292,36 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
     private static final String JACOCO_GROUP_ID = "org.jacoco";
     private static final String JACOCO_ARTIFACT_ID = "jacoco-maven-plugin";
 
-    static final Set<File> collectedExecFilePaths = new HashSet<>();
-    static final Set<File> collectedClassesPaths = new HashSet<>();
-    static final Set<Pattern> collectedExcludePatterns = new HashSet<>();
-    static final Set<SonarExclusionPattern> collectedSonarExcludePatterns = new HashSet<>();
+    /**
+     * Directories of wars and Spring Boot jars that hold the classes of the application itself
+     */
+    private static final String[] ARCHIVE_CLASSES_ROOTS = {"WEB-INF/classes/", "BOOT-INF/classes/"};
+    private static final String[] ARCHIVE_LAYOUT_ROOTS = {"WEB-INF/", "BOOT-INF/"};
+    private static final String VERSIONED_CLASSES_ROOT = "META-INF/versions/";
+
+    /**
+     * File names of the nested jars to analyze, see {@link #isIncludedNestedArchive}; built on first use per collection
+     */
+    private List<Pattern> nestedArchivePatterns;
+
+    // Filled by all modules of the build, which run concurrently with -T. Only read once the reactor completed.
+    static final Set<File> collectedExecFilePaths = Collections.synchronizedSet(new HashSet<>());
+    static final Set<File> collectedClassesPaths = Collections.synchronizedSet(new HashSet<>());
+    static final Set<File> collectedArchivePaths = Collections.synchronizedSet(new HashSet<>());
+    static final ExclusionPatternSet collectedExcludePatterns = new ExclusionPatternSet();
+    static final Set<SonarExclusionPattern> collectedSonarExcludePatterns = Collections.synchronizedSet(new HashSet<>());
+    static final ReactorProgress reactorProgress = new ReactorProgress();
+    static final AnalysisPipeline analysisPipeline = new AnalysisPipeline();
+
+    /**
+     * The caches of an analysis that was stopped; the next analysis continues with them
+     */
+    private StoppedAnalysis stoppedAnalysis;
+
+    /**
+     * The timings of the running report when they are reported, so the work of the worker threads counts for them
+     */
+    private @Nullable ReportTimings workerTimings;
 
     File targetDir;
     File baseDir;
@@ -190,9 +338,11 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
     public void execute() throws MojoExecutionException {
         setupDefaultVariables();
 
+        Set<File> moduleExecFiles = new HashSet<>();
         doSomethingForEachPluginConfiguration(JACOCO_GROUP_ID, JACOCO_ARTIFACT_ID, "destFile", destFile -> {
             File jacocoExecFile = new File(destFile).getAbsoluteFile();
             collectedExecFilePaths.add(jacocoExecFile);
+            moduleExecFiles.add(jacocoExecFile);
             if (jacocoExecFile.exists()) {
                 getLog().debug("Added exec file from current module: " + jacocoExecFile);
             }
@@ -200,11 +350,16 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
 
         collectedClassesPaths.add(classesDirectory);
         getLog().debug("Collected Classes: " + collectedClassesPaths);
+        if (archives != null) {
+            archives.stream().filter(Objects::nonNull).map(File::getAbsoluteFile).forEach(collectedArchivePaths::add);
+            getLog().debug("Collected Archives: " + collectedArchivePaths);
+        }
 
         loadExclusionPatterns();
 
         // If we're deferring and this isn't the last module, return
         if (deferReporting && !shouldReport()) {
+            startPipelineAnalysis(moduleExecFiles);
             getLog().info("Deferring JaCoCo reporting until the end of the build");
             return;
         }
@@ -212,6 +367,23 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
         generateReports();
     }
 
+    /**
+     * Schedules the background analysis of this module's classes against its own execution data.
+     */
+    void startPipelineAnalysis(@NotNull Set<File> moduleExecFiles) throws MojoExecutionException {
+        if (!pipelineAnalysis) {
+            return;
+        }
+
+        try {
+            List<ClassFile> classFiles = collectClassFiles(Collections.singletonList(classesDirectory));
+            analysisPipeline.submit(mavenSession, moduleExecFiles, classFiles, getLog());
+            getLog().debug("Scheduled background analysis of " + classFiles.size() + " class files");
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to collect class files", e);
+        }
+    }
+
     /**
      * Loads exclusion patterns from configuration and JaCoCo plugin settings
      */
@@ -231,39 +403,42 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
 
         try {
             String buildDirPath = fileReader.canonicalPath(targetDir);
-            Files.walkFileTree(Paths.get(buildDirPath), new SimpleFileVisitor<Path>() {
-                @Override
-                public @NotNull FileVisitResult visitFile(@NotNull Path file, @NotNull BasicFileAttributes attrs) {
-                    String filePath = file.toString().toLowerCase(Locale.ENGLISH);
-                    if (!filePath.endsWith(".java")) {
-                        return FileVisitResult.CONTINUE;
-                    }
-
-                    String content;
-                    try {
-                        content = fileReader.readAllBytes(file);
-                    } catch (IOException e) {
-                        getLog().warn("Failed to read file: " + file, e);
-                        return FileVisitResult.CONTINUE;
-                    }
+            BuildDirectoryIndex index = loadBuildDirectoryIndex();
+            BuildDirectoryScanner scanner = new BuildDirectoryScanner(fileReader, ParallelTasks.resolveThreads(analysisThreads), getLog(), index);
+            for (String classFile : scanner.scan(Paths.get(buildDirPath))) {
+                addExclusion(classFile);
+            }
+            saveBuildDirectoryIndex(index);
+        } catch (IOException e) {
+            getLog().warn("Failed to add build directory exclusion: " + e.getMessage());
+        }
+    }
 
-                    Matcher matcher = PACKAGE_PATTERN.matcher(content);
-                    if (!matcher.find()) {
-                        return FileVisitResult.CONTINUE;
-                    }
+    /**
+     * Loads the build directory index when it is enabled.
+     */
+    @Nullable BuildDirectoryIndex loadBuildDirectoryIndex() {
+        if (!useBuildDirectoryIndex || buildDirectoryIndexFile == null) {
+            return null;
+        }
 
-                    String packageName = matcher.group(1).trim();
-                    String fileName = file.getFileName().toString();
-                    String className = fileName.substring(0, fileName.lastIndexOf('.')) + ".class";
+        getLog().debug("Loading build directory index: " + buildDirectoryIndexFile);
+        return BuildDirectoryIndex.load(buildDirectoryIndexFile, getLog());
+    }
 
-                    // Add to exclusion patterns
-                    addExclusion(packageName.replace(".", "/") + "/" + className);
+    /**
+     * Writes the build directory index back to disk. An index that can't be written only costs time in the next build.
+     */
+    void saveBuildDirectoryIndex(@Nullable BuildDirectoryIndex index) {
+        if (index == null) {
+            return;
+        }
 
-                    return FileVisitResult.CONTINUE;
-                }
-            });
+        getLog().debug(String.format("Build directory index: %d hits, %d misses", index.getHits(), index.getMisses()));
+        try {
+            index.save(buildDirectoryIndexFile);
         } catch (IOException e) {
-            getLog().warn("Failed to add build directory exclusion: " + e.getMessage());
+            getLog().warn("Failed to write build directory index: " + e.getMessage());
         }
     }
 
@@ -375,7 +550,7 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
     boolean isExcluded(String className, String filePath) {
         // Check JaCoCo-style package exclusions
         if (!collectedExcludePatterns.isEmpty()) {
-            if (collectedExcludePatterns.stream().anyMatch(p -> p.matcher(className).matches())) {
+            if (collectedExcludePatterns.matches(className)) {
                 return true;
             }
         }
@@ -394,33 +569,325 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
     }
 
     void generateReports() throws MojoExecutionException {
+        ReportTimings timings = new ReportTimings();
+        workerTimings = reportTimings ? timings : null;
         try {
             getLog().debug("Using exclusion patterns: " + collectedExcludePatterns);
 
+            getLog().debug("Collecting class files");
+            List<ClassFile> classFiles;
+            try (ReportTimings.Phase phase = timings.start("collect")) {
+                classFiles = collectClassFiles();
+                phase.setClasses(classFiles.size());
+                phase.setPatterns(exclusionPatternCount());
+            }
+
             getLog().debug("Loading execution data");
-            ExecutionDataStore executionDataStore = loadExecutionData();
+            ExecutionDataStore executionDataStore;
+            try (ReportTimings.Phase phase = timings.start("load")) {
+                executionDataStore = loadExecutionData(filterExecutionData ? ClassFile.classNames(classFiles) : null);
+                phase.setFiles((int) collectedExecFilePaths.stream().filter(file -> file != null && file.exists()).count());
+                phase.setClasses(executionDataStore.getContents().size());
+            }
 
-            getLog().debug("Analyzing coverage");
-            IBundleCoverage bundle = analyzeCoverage(executionDataStore);
+            if (!reportIncrementally(executionDataStore, classFiles, timings) && !reportWithoutBundle(executionDataStore, classFiles, timings)) {
+                IBundleCoverage bundle;
+                try (ReportTimings.Phase phase = timings.start("analyze")) {
+                    getLog().debug("Analyzing coverage");
+                    bundle = analyzeCoverage(executionDataStore, classFiles);
+                    phase.setClasses(classFiles.size());
+                }
 
-            getLog().debug("Building internal tree model");
-            DirectoryNode root = buildDirectoryTree(bundle);
+                DirectoryNode root;
+                try (ReportTimings.Phase phase = timings.start("tree")) {
+                    getLog().debug("Building internal tree model");
+                    root = buildDirectoryTree(bundle);
+                    phase.setClasses(bundle.getClassCounter().getTotalCount());
+                    phase.setPatterns(exclusionPatternCount());
+                }
 
-            getLog().debug("Printing reports");
-            printCoverageReport(root);
-            generateXmlReport(bundle);
+                try (ReportTimings.Phase ignored = timings.start("print")) {
+                    getLog().debug("Printing reports");
+                    printCoverageReport(root);
+                }
+
+                if (writeXmlReport && xmlOutputFile != null) {
+                    try (ReportTimings.Phase phase = timings.start("xml")) {
+                        generateXmlReport(bundle);
+                        phase.setFiles(1);
+                        phase.setClasses(bundle.getClassCounter().getTotalCount());
+                    }
+                }
+            }
         } catch (IOException e) {
             throw new MojoExecutionException("Failed to process JaCoCo data", e);
+        } finally {
+            workerTimings = null;
+        }
+
+        reportTimings(timings);
+    }
+
+    /**
+     * Logs the timings and writes them to {@link #reportTimingsFile} when enabled.
+     * Timings that can't be written don't fail the build.
+     */
+    void reportTimings(@NotNull ReportTimings timings) {
+        if (!reportTimings) {
+            return;
+        }
+
+        timings.print(getLog());
+        if (reportTimingsFile == null) {
+            return;
+        }
+        try {
+            timings.write(reportTimingsFile);
+            getLog().debug("Report timings written to: " + reportTimingsFile);
+        } catch (IOException e) {
+            getLog().warn("Failed to write report timings: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Number of JaCoCo and Sonar exclusion patterns
+     */
+    int exclusionPatternCount() {
+        return collectedExcludePatterns.size() + collectedSonarExcludePatterns.size();
+    }
+
+    /**
+     * Reports from the state of the previous build: only the source files whose class files or execution data changed
+     * are analyzed, and their nodes are patched into the tree of the previous build, see {@link IncrementalReport}.
+     *
+     * @return Whether the report was printed
+     */
+    boolean reportIncrementally(@NotNull ExecutionDataStore executionDataStore, @NotNull List<ClassFile> classFiles, @NotNull ReportTimings timings) throws IOException {
+        if (!incrementalReport || incrementalReportFile == null || (writeXmlReport && xmlOutputFile != null)) {
+            return false;
+        }
+
+        Set<String> classNames = ClassFile.classNames(classFiles);
+        if (classNames == null || classNames.size() != classFiles.size()) {
+            getLog().debug("Class files without a unique name, building the full report");
+            return false;
+        }
+
+        boolean missingLines = showFiles && showMissingLines;
+        getLog().debug("Loading incremental report state: " + incrementalReportFile);
+        IncrementalReport state = IncrementalReport.load(incrementalReportFile, incrementalReportSettings(missingLines), getLog());
+        CoverageTreeBuilder treeBuilder = new CoverageTreeBuilder(this::isSourceFileExcluded, missingLines);
+
+        IncrementalReport.Changes changes;
+        try (ReportTimings.Phase phase = timings.start("analyze")) {
+            changes = state.compare(classFiles, executionDataStore);
+            getLog().debug(String.format("Incremental report: analyzing %d of %d class files for %d changed source files",
+                    changes.classFiles.size(), classFiles.size(), changes.sourceFiles.size()));
+            analyzeCoverage(executionDataStore, changes.classFiles, treeBuilder, changes.unchangedClassIds);
+            phase.setClasses(changes.classFiles.size());
+            phase.setPatterns(exclusionPatternCount());
+        }
+
+        if (!treeBuilder.isExact()) {
+            getLog().debug("Classes affect each other's coverage, building the full report");
+            return false;
+        }
+
+        DirectoryNode root;
+        try (ReportTimings.Phase phase = timings.start("tree")) {
+            getLog().debug("Patching the tree of the previous build");
+            root = state.buildTree();
+            state.patch(root, changes.sourceFiles, treeBuilder.buildSourceFiles());
+            phase.setClasses(classFiles.size());
+        }
+
+        try (ReportTimings.Phase ignored = timings.start("print")) {
+            getLog().debug("Printing reports");
+            if (showTree) {
+                printCoverageReport(root);
+            } else {
+                printSummary(root);
+            }
+        }
+
+        try {
+            state.save(incrementalReportFile);
+        } catch (IOException e) {
+            getLog().warn("Failed to write incremental report state: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Stops the streamed analysis as soon as it can't be exact: the full report analyzes the classes anyway, and
+     * continues with the ones that were analyzed so far, see {@link #analyzeCoverage(ExecutionDataStore, List, ICoverageVisitor, Collection)}
+     */
+    private static void stopWhenInexact(boolean exact) {
+        if (!exact) {
+            throw new ClassAnalysisEngine.StopAnalysis();
+        }
+    }
+
+    /**
+     * Everything besides the class files and execution data that the tree of the incremental report depends on
+     */
+    @NotNull String incrementalReportSettings(boolean missingLines) {
+        List<String> settings = new ArrayList<>();
+        collectedExcludePatterns.forEach(pattern -> settings.add("exclude " + pattern.pattern()));
+        synchronized (collectedSonarExcludePatterns) {
+            collectedSonarExcludePatterns.forEach(pattern -> settings.add("sonar " + pattern.getOriginalPattern() + " in "
+                    + (pattern.getSourceProject() == null ? null : pattern.getSourceProject().getBasedir())));
+        }
+        Collections.sort(settings);
+        settings.add(0, "jacoco " + JaCoCo.VERSION);
+        settings.add(1, "missingLines " + missingLines);
+        return String.join("\n", settings);
+    }
+
+    /**
+     * Builds the tree (or only the totals) and the XML report while the classes are analyzed, without keeping the
+     * bundle in memory. The bundle is still needed when classes affect each other's coverage: the analysis then stops
+     * at the first such class.
+     *
+     * @return Whether the reports were written
+     */
+    boolean reportWithoutBundle(@NotNull ExecutionDataStore executionDataStore, @NotNull List<ClassFile> classFiles) throws IOException {
+        return reportWithoutBundle(executionDataStore, classFiles, new ReportTimings());
+    }
+
+    /**
+     * See {@link #reportWithoutBundle(ExecutionDataStore, List)}; the analysis, including the streamed tree and XML
+     * report, is timed as a single phase.
+     */
+    boolean reportWithoutBundle(@NotNull ExecutionDataStore executionDataStore, @NotNull List<ClassFile> classFiles, @NotNull ReportTimings timings) throws IOException {
+        boolean xmlReport = writeXmlReport && xmlOutputFile != null;
+        Map<String, Integer> classesPerPackage = xmlReport ? XmlReportWriter.countClassesPerPackage(classFiles) : null;
+        if (xmlReport && classesPerPackage == null) {
+            return false;
+        }
+
+        boolean summaryOnly = !showTree;
+        getLog().debug(summaryOnly ? "Analyzing coverage for the summary" : "Analyzing coverage");
+        CoverageTreeBuilder treeBuilder = new CoverageTreeBuilder(this::isSourceFileExcluded, !summaryOnly && showFiles && showMissingLines);
+
+        File temporaryXml = null;
+        boolean exact = true;
+        try (ReportTimings.Phase phase = timings.start("analyze")) {
+            phase.setClasses(classFiles.size());
+            phase.setPatterns(exclusionPatternCount());
+            try {
+                if (xmlReport) {
+                    temporaryXml = temporaryXmlOutputFile();
+                    try (XmlReportWriter xmlWriter = XmlReportWriter.open(temporaryXml, XmlReportWriter.isGzip(xmlOutputFile), BUNDLE_NAME, classesPerPackage)) {
+                        analyzeCoverage(executionDataStore, classFiles, coverage -> {
+                            treeBuilder.visitCoverage(coverage);
+                            xmlWriter.visitCoverage(coverage);
+                            stopWhenInexact(treeBuilder.isExact() && xmlWriter.isExact());
+                        });
+                    } catch (UncheckedIOException e) {
+                        Files.deleteIfExists(temporaryXml.toPath());
+                        throw e.getCause();
+                    } catch (IOException | RuntimeException e) {
+                        Files.deleteIfExists(temporaryXml.toPath());
+                        throw e;
+                    }
+                } else {
+                    analyzeCoverage(executionDataStore, classFiles, coverage -> {
+                        treeBuilder.visitCoverage(coverage);
+                        stopWhenInexact(treeBuilder.isExact());
+                    });
+                }
+            } catch (ClassAnalysisEngine.StopAnalysis e) {
+                exact = false;
+            }
         }
+
+        if (!exact) {
+            getLog().debug("Classes affect each other's coverage, building the full report");
+            return false;
+        }
+
+        if (summaryOnly) {
+            try (ReportTimings.Phase ignored = timings.start("print")) {
+                getLog().debug("Printing reports");
+                printSummary(treeBuilder.getMetrics());
+            }
+        } else {
+            DirectoryNode root;
+            try (ReportTimings.Phase ignored = timings.start("tree")) {
+                getLog().debug("Building internal tree model");
+                root = treeBuilder.build();
+            }
+
+            try (ReportTimings.Phase ignored = timings.start("print")) {
+                getLog().debug("Printing reports");
+                printCoverageReport(root);
+            }
+        }
+
+        if (temporaryXml != null) {
+            try (ReportTimings.Phase phase = timings.start("xml")) {
+                getLog().info("Generating aggregated JaCoCo XML report to: " + xmlOutputFile.getAbsolutePath());
+                Files.move(temporaryXml.toPath(), xmlOutputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                getLog().info("XML report generated successfully.");
+                phase.setFiles(1);
+            }
+        }
+        return true;
     }
 
     /**
      * Determines if this is the last module in a multi-module build
      * --> If so: start reporting
+     * In parallel builds, this is the module that completes the reactor, whatever its position in the list.
+     * Only the modules that run this goal are waited for, see {@link #reportingProjects()}.
      */
     boolean shouldReport() {
+        if (!deferReporting) {
+            return true;
+        }
+
+        List<String> projectIds = reportingProjects().stream().map(MavenProject::getId).collect(Collectors.toList());
+        if (mavenSession.isParallel()) {
+            // Modules finish in any order: wait until every project of the reactor collected its data.
+            boolean report = reactorProgress.finish(mavenSession, project.getId(), projectIds);
+            if (!report) {
+                getLog().debug(String.format("Waiting for %d more modules before reporting", reactorProgress.getPendingCount(projectIds)));
+            }
+            return report;
+        }
+
         //Defer execution until the last project.
-        return !deferReporting || project.getId().equals(mavenSession.getProjects().get(mavenSession.getProjects().size() - 1).getId());
+        int index = projectIds.indexOf(project.getId());
+        getLog().debug(String.format("Waiting for %d more modules before reporting", projectIds.size() - 1 - index));
+        return index == projectIds.size() - 1;
+    }
+
+    /**
+     * The projects of the reactor that run this goal, in reactor order: those that bind it in their build plugins, and
+     * this one. Projects that already failed (with --fail-at-end) are left out, as they never get to report. When the
+     * goal was called from the command line, it runs for every project.
+     */
+    @NotNull List<MavenProject> reportingProjects() {
+        List<MavenProject> projects = mavenSession.getProjects();
+        if (mojoExecution == null || mojoExecution.getSource() == MojoExecution.Source.CLI) {
+            return projects;
+        }
+
+        return projects.stream()
+                .filter(reactorProject -> reactorProject.getId().equals(project.getId())
+                        || (bindsGoal(reactorProject) && !(mavenSession.getResult().getBuildSummary(reactorProject) instanceof BuildFailure)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Whether a project has an execution of this plugin with the goal of this execution
+     */
+    private boolean bindsGoal(@NotNull MavenProject reactorProject) {
+        return reactorProject.getBuildPlugins().stream()
+                .filter(plugin -> mojoExecution.getGroupId().equals(plugin.getGroupId()) && mojoExecution.getArtifactId().equals(plugin.getArtifactId()))
+                .flatMap(plugin -> plugin.getExecutions().stream())
+                .anyMatch(execution -> execution.getGoals().contains(mojoExecution.getGoal()));
     }
 
     Queue<Xpp3Dom> digIntoConfig(Xpp3Dom config, String[] parts) {
@@ -510,57 +977,408 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
      * @throws IOException if there are issues reading the JaCoCo execution files
      */
     @NotNull ExecutionDataStore loadExecutionData() throws IOException {
+        return loadExecutionData(null);
+    }
+
+    /**
+     * Loads the JaCoCo execution data, keeping only the entries of the given classes.
+     *
+     * @param classNames VM names of the classes that will be analyzed, or null to keep all entries
+     */
+    @NotNull ExecutionDataStore loadExecutionData(@Nullable Set<String> classNames) throws IOException {
         getLog().debug("Loading execution data with line-level deduplication");
-        ExecutionDataMerger merger = new ExecutionDataMerger();
+        ExecutionDataMerger merger = new ExecutionDataMerger(ParallelTasks.resolveThreads(analysisThreads), classNames, workerTimings);
 
         // Pass all exec files to the merger
-        ExecutionDataStore executionDataStore = merger.loadExecutionData(collectedExecFilePaths);
+        ExecSnapshot snapshot = loadExecSnapshot();
+        ExecutionDataStore executionDataStore = snapshot == null
+                ? merger.loadExecutionData(collectedExecFilePaths)
+                : merger.loadExecutionData(collectedExecFilePaths, snapshot);
 
         int fileCount = (int) collectedExecFilePaths.stream().filter(file -> file != null && file.exists()).count();
 
         getLog().debug(String.format("Processed %d exec files containing data for %d unique classes", fileCount, merger.getUniqueClassCount()));
+        if (snapshot != null) {
+            getLog().debug(String.format("Exec snapshot: %d of %d exec files read", merger.getReadFileCount(), fileCount));
+            saveExecSnapshot(snapshot);
+        }
+        if (classNames != null) {
+            getLog().debug(String.format("Skipped %d exec entries of classes that are not analyzed", merger.getSkippedEntryCount()));
+        }
 
         return executionDataStore;
     }
 
+    /**
+     * Loads the exec snapshot when it is enabled.
+     */
+    @Nullable ExecSnapshot loadExecSnapshot() {
+        if (!useExecSnapshot || execSnapshotFile == null) {
+            return null;
+        }
+
+        getLog().debug("Loading exec snapshot: " + execSnapshotFile);
+        return ExecSnapshot.load(execSnapshotFile, getLog());
+    }
+
+    /**
+     * Writes the exec snapshot back to disk. A snapshot that can't be written only costs time in the next build.
+     */
+    void saveExecSnapshot(@NotNull ExecSnapshot snapshot) {
+        try {
+            snapshot.save(execSnapshotFile);
+        } catch (IOException e) {
+            getLog().warn("Failed to write exec snapshot: " + e.getMessage());
+        }
+    }
+
     /**
      * Analyzes the compiled classes using the execution data to build coverage information.
      * Uses JaCoCo's analyzer to process all class files in the specified directory,
      * building a complete picture of code coverage. Applies exclusion patterns to filter
      * out classes that should not be included in coverage analysis.
+     * The class files are spread over {@link #analysisThreads} worker threads.
      *
      * @param executionDataStore Contains the execution data from JaCoCo
      * @return A bundle containing all coverage information
      * @throws IOException if there are issues reading the class files
      */
     @NotNull IBundleCoverage analyzeCoverage(@NotNull ExecutionDataStore executionDataStore) throws IOException {
-        // Create a custom CoverageBuilder that filters excluded classes
+        return analyzeCoverage(executionDataStore, collectClassFiles());
+    }
+
+    /**
+     * Analyzes the given class files, see {@link #analyzeCoverage(ExecutionDataStore)}.
+     */
+    @NotNull IBundleCoverage analyzeCoverage(@NotNull ExecutionDataStore executionDataStore, @NotNull List<ClassFile> classFiles) throws IOException {
         CoverageBuilder coverageBuilder = new CoverageBuilder();
-        Analyzer analyzer = new Analyzer(executionDataStore, coverageBuilder);
+        analyzeCoverage(executionDataStore, classFiles, coverageBuilder);
+        return coverageBuilder.getBundle(BUNDLE_NAME);
+    }
 
-        for (File classPath : collectedClassesPaths) {
-            if (classPath == null || !classPath.exists()) {
+    /**
+     * Analyzes the given class files and hands every class to the visitor, in the order of the class files.
+     */
+    void analyzeCoverage(@NotNull ExecutionDataStore executionDataStore, @NotNull List<ClassFile> classFiles, @NotNull ICoverageVisitor visitor) throws IOException {
+        analyzeCoverage(executionDataStore, classFiles, visitor, Collections.emptySet());
+    }
+
+    /**
+     * Analyzes the given class files, see {@link #analyzeCoverage(ExecutionDataStore, List, ICoverageVisitor)}.
+     *
+     * @param unchangedClassIds Classes that are left out this time; their analysis cache entries are kept
+     */
+    void analyzeCoverage(@NotNull ExecutionDataStore executionDataStore, @NotNull List<ClassFile> classFiles, @NotNull ICoverageVisitor visitor,
+                         @NotNull Collection<Long> unchangedClassIds) throws IOException {
+        AnalysisCache analysisCache;
+        AnalysisCache lookupCache;
+        if (stoppedAnalysis != null) {
+            // The classes analyzed before the stop are restored instead of analyzed again
+            analysisCache = stoppedAnalysis.analysisCache;
+            lookupCache = stoppedAnalysis.lookupCache;
+            stoppedAnalysis = null;
+        } else {
+            analysisCache = loadAnalysisCache();
+            lookupCache = addPipelineResults(analysisCache);
+        }
+        if (lookupCache != null) {
+            lookupCache.setReuseForUnexecutedClasses(reuseAnalysisForUnexecutedClasses);
+        }
+
+        try {
+            new ClassAnalysisEngine(executionDataStore, ParallelTasks.resolveThreads(analysisThreads), getLog(), lookupCache, workerTimings)
+                    .analyze(classFiles, visitor);
+        } catch (ClassAnalysisEngine.StopAnalysis e) {
+            stoppedAnalysis = new StoppedAnalysis(analysisCache, lookupCache);
+            throw e;
+        }
+
+        if (analysisCache != null) {
+            unchangedClassIds.forEach(analysisCache::keep);
+        }
+        saveAnalysisCache(analysisCache);
+    }
+
+    /**
+     * Loads the analysis cache when it is enabled.
+     */
+    @Nullable AnalysisCache loadAnalysisCache() {
+        if (!useAnalysisCache || analysisCacheFile == null) {
+            return null;
+        }
+
+        getLog().debug("Loading analysis cache: " + analysisCacheFile);
+        return AnalysisCache.load(analysisCacheFile, getLog());
+    }
+
+    /**
+     * Waits for the background analysis of the deferred modules and adds its results to the analysis cache.
+     *
+     * @return The cache to analyze with; the pipeline results alone when the persistent cache is disabled
+     */
+    @Nullable AnalysisCache addPipelineResults(@Nullable AnalysisCache analysisCache) throws IOException {
+        if (!pipelineAnalysis) {
+            return analysisCache;
+        }
+
+        AnalysisCache pipelineResults = analysisPipeline.await(getLog());
+        getLog().debug("Background analysis results: " + pipelineResults.size() + " classes");
+        if (analysisCache == null) {
+            return pipelineResults;
+        }
+
+        analysisCache.putAll(pipelineResults);
+        return analysisCache;
+    }
+
+    /**
+     * Writes the analysis cache back to disk. A cache that can't be written only costs time in the next build.
+     */
+    void saveAnalysisCache(@Nullable AnalysisCache analysisCache) {
+        if (analysisCache == null) {
+            return;
+        }
+
+        getLog().debug(String.format("Analysis cache: %d hits (%d without execution data), %d misses", analysisCache.getHits(), analysisCache.getUnexecutedHits(), analysisCache.getMisses()));
+        try {
+            analysisCache.save(analysisCacheFile);
+        } catch (IOException e) {
+            getLog().warn("Failed to write analysis cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Collects all class files below the collected classes directories and in the collected archives.
+     * Directories and the files within are sorted, so the analysis order is stable between builds.
+     */
+    @NotNull List<ClassFile> collectClassFiles() throws IOException {
+        List<File> classesPaths = new ArrayList<>(collectedClassesPaths);
+        classesPaths.addAll(collectedArchivePaths);
+        return collectClassFiles(classesPaths);
+    }
+
+    /**
+     * Collects all class files below the given classes directories or in the given archives, skipping the excluded ones.
+     * Archives within classes directories are only looked into with {@link #analyzeArchives}.
+     */
+    @NotNull List<ClassFile> collectClassFiles(@NotNull Collection<File> classesPaths) throws IOException {
+        List<File> classPaths = classesPaths.stream()
+                .filter(Objects::nonNull)
+                .sorted()
+                .distinct()
+                .collect(Collectors.toList());
+
+        nestedArchivePatterns = null;
+        List<ClassFile> classFiles = new ArrayList<>();
+        Map<String, Boolean> excludedSourceFiles = new HashMap<>();
+        for (File classPath : classPaths) {
+            if (!classPath.exists()) {
+                continue;
+            }
+
+            if (classPath.isFile() && isArchive(classPath.getName().toLowerCase(Locale.ENGLISH))) {
+                collectArchiveClassFiles(classPath.toPath(), excludedSourceFiles, classFiles);
                 continue;
             }
 
             getLog().debug("Analyzing class files in: " + classPath.getAbsolutePath());
+            List<Path> found = new ArrayList<>();
             Files.walkFileTree(classPath.toPath(), new SimpleFileVisitor<Path>() {
                 @Override
                 public @NotNull FileVisitResult visitFile(@NotNull Path file, @NotNull BasicFileAttributes attrs) {
                     String filePath = file.toString().toLowerCase(Locale.ENGLISH);
-                    if (filePath.endsWith(".class")) {
-                        try (FileInputStream in = new FileInputStream(file.toFile())) {
-                            analyzer.analyzeClass(in, file.toString());
-                        } catch (Exception e) {
-                            getLog().debug("Error analyzing class file: " + file + ": " + e.getMessage());
-                        }
+                    if (filePath.endsWith(".class") || (analyzeArchives && isArchive(filePath))) {
+                        found.add(file);
                     }
                     return FileVisitResult.CONTINUE;
                 }
             });
+
+            Path root = classPath.toPath();
+            try (FlightRecorderEvent.ExclusionChecks checks = FlightRecorderEvents.exclusionChecks(classPath.getPath(), exclusionPatternCount())) {
+                for (Path file : found.stream().sorted().collect(Collectors.toList())) {
+                    if (isArchive(file.toString().toLowerCase(Locale.ENGLISH))) {
+                        collectArchiveClassFiles(file, excludedSourceFiles, classFiles);
+                        continue;
+                    }
+
+                    boolean excluded = isClassFileExcluded(root.relativize(file), excludedSourceFiles);
+                    checks.check(excluded);
+                    if (!excluded) {
+                        classFiles.add(new ClassFile(file, toClassName(root.relativize(file))));
+                    }
+                }
+            }
         }
 
-        return coverageBuilder.getBundle("Project");
+        return classFiles;
+    }
+
+    /**
+     * Collects the class files of an archive on disk. An archive that can't be read is skipped with a warning.
+     */
+    void collectArchiveClassFiles(@NotNull Path archive, @NotNull Map<String, Boolean> excludedSourceFiles, @NotNull List<ClassFile> classFiles) {
+        getLog().debug("Analyzing class files in: " + archive.toAbsolutePath());
+        try (FlightRecorderEvent.ExclusionChecks checks = FlightRecorderEvents.exclusionChecks(archive.toString(), exclusionPatternCount())) {
+            collectArchiveClassFiles(archive, ArchiveReader.open(archive), "", excludedSourceFiles, classFiles, checks);
+        } catch (IOException e) {
+            getLog().warn("Failed to read archive " + archive + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Collects the class files of a (nested) archive. Entries are selected by name only; nothing is inflated
+     * except nested archives that are compressed.
+     * <p>
+     * Of a war or Spring Boot jar only the classes roots are read: the other classes are the loader's or the libraries'.
+     * Nested jars are only read when {@link #isIncludedNestedArchive} accepts them, and the versioned classes of a
+     * multi-release jar are skipped, as their base version is already analyzed.
+     *
+     * @param prefix Location of the archive within the outermost one, e.g. "WEB-INF/lib/core.jar!/"
+     */
+    private void collectArchiveClassFiles(@NotNull Path path, @NotNull ArchiveReader archive, @NotNull String prefix,
+                                          @NotNull Map<String, Boolean> excludedSourceFiles, @NotNull List<ClassFile> classFiles,
+                                          @NotNull FlightRecorderEvent.ExclusionChecks checks) {
+        boolean layered = archive.getEntries().stream().anyMatch(entry -> startsWithAny(entry.getName(), ARCHIVE_LAYOUT_ROOTS));
+        for (ArchiveReader.Entry entry : archive.getEntries()) {
+            String name = entry.getName();
+            String lowerCaseName = name.toLowerCase(Locale.ENGLISH);
+            if (isArchive(lowerCaseName)) {
+                if (!isIncludedNestedArchive(name.substring(name.lastIndexOf('/') + 1))) {
+                    getLog().debug("Skipping nested archive " + path + "!/" + prefix + name);
+                    continue;
+                }
+                try {
+                    collectArchiveClassFiles(path, archive.openNested(entry), prefix + name + "!/", excludedSourceFiles, classFiles, checks);
+                } catch (IOException e) {
+                    getLog().warn("Failed to read archive " + path + "!/" + prefix + name + ": " + e.getMessage());
+                }
+                continue;
+            }
+            if (!lowerCaseName.endsWith(".class") || name.startsWith(VERSIONED_CLASSES_ROOT)
+                    || (layered && !startsWithAny(name, ARCHIVE_CLASSES_ROOTS))) {
+                continue;
+            }
+
+            Path relativePath = Paths.get(stripClassesRoot(name));
+            boolean excluded = isClassFileExcluded(relativePath, excludedSourceFiles);
+            checks.check(excluded);
+            if (!excluded) {
+                classFiles.add(new ArchiveClassFile(path, prefix + name, toClassName(relativePath), archive, entry));
+            }
+        }
+    }
+
+    private static boolean startsWithAny(@NotNull String name, @NotNull String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the classes of a nested jar are analyzed: it is a jar of a module in the reactor, or it matches
+     * {@link #nestedArchives}. All other nested jars are libraries.
+     *
+     * @param fileName File name of the nested jar, e.g. "core-1.0.jar"
+     */
+    boolean isIncludedNestedArchive(@NotNull String fileName) {
+        if (nestedArchivePatterns == null) {
+            List<Pattern> patterns = new ArrayList<>();
+            if (nestedArchives != null) {
+                nestedArchives.stream().filter(Objects::nonNull).map(JacocoConsoleReporterMojo::wildcardToPattern).forEach(patterns::add);
+            }
+            if (mavenSession != null) {
+                for (MavenProject reactorProject : mavenSession.getProjects()) {
+                    patterns.add(Pattern.compile(Pattern.quote(reactorProject.getArtifactId() + "-" + reactorProject.getVersion()) + "(?:-[^/]*)?\\.jar"));
+                    if (reactorProject.getBuild() != null && reactorProject.getBuild().getFinalName() != null) {
+                        patterns.add(Pattern.compile(Pattern.quote(reactorProject.getBuild().getFinalName() + ".jar")));
+                    }
+                }
+            }
+            nestedArchivePatterns = patterns;
+        }
+        return nestedArchivePatterns.stream().anyMatch(pattern -> pattern.matcher(fileName).matches());
+    }
+
+    /**
+     * Converts a file name with "*" and "?" wildcards to a pattern
+     */
+    static @NotNull Pattern wildcardToPattern(@NotNull String wildcard) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : wildcard.trim().toCharArray()) {
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    static boolean isArchive(@NotNull String lowerCaseName) {
+        return lowerCaseName.endsWith(".jar") || lowerCaseName.endsWith(".war");
+    }
+
+    /**
+     * Strips the directory that holds the classes in a war or Spring Boot jar from an entry name
+     */
+    static @NotNull String stripClassesRoot(@NotNull String entryName) {
+        for (String root : ARCHIVE_CLASSES_ROOTS) {
+            if (entryName.startsWith(root)) {
+                return entryName.substring(root.length());
+            }
+        }
+        return entryName;
+    }
+
+    /**
+     * Checks, before the class file is read, whether the source file it was compiled from is excluded.
+     * The VM name follows from the relative path; nested classes ("Outer$Inner") map to the source file of their
+     * outermost class. This is the same check {@link #isSourceFileExcluded} applies to the finished tree.
+     * A class living in a source file with another name is checked by its own name, which is how JaCoCo
+     * applies its excludes to class files.
+     *
+     * @param relativePath        Path of the class file, relative to its classes directory
+     * @param excludedSourceFiles Results of earlier checks, keyed by the VM name of the outermost class
+     */
+    boolean isClassFileExcluded(@NotNull Path relativePath, @NotNull Map<String, Boolean> excludedSourceFiles) {
+        String vmName = toVmName(relativePath);
+
+        int simpleNameStart = vmName.lastIndexOf('/') + 1;
+        int nested = vmName.indexOf('$', simpleNameStart);
+        String outerName = nested > simpleNameStart ? vmName.substring(0, nested) : vmName;
+
+        boolean excluded = excludedSourceFiles.computeIfAbsent(outerName, name -> {
+            int slash = name.lastIndexOf('/');
+            String packageName = slash < 0 ? "" : name.substring(0, slash);
+            return isSourceFileExcluded(packageName, name.substring(slash + 1) + ".java");
+        });
+
+        if (excluded) {
+            getLog().debug("Skipping excluded class file: " + vmName);
+        }
+        return excluded;
+    }
+
+    /**
+     * The VM name a class file is expected to declare, or null for versioned classes of a multi-release layout
+     */
+    static @Nullable String toClassName(@NotNull Path relativePath) {
+        String vmName = toVmName(relativePath);
+        return vmName.startsWith("META-INF/") ? null : vmName;
+    }
+
+    /**
+     * Derives the VM name of a class ("com/example/Foo$Bar") from the path of its class file relative to the classes directory
+     */
+    static @NotNull String toVmName(@NotNull Path relativePath) {
+        String vmName = relativePath.toString().replace(File.separatorChar, '/');
+        return vmName.substring(0, vmName.length() - ".class".length());
     }
 
     /**
@@ -575,9 +1393,11 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
     }
 
     void printSummary(@NotNull DirectoryNode root) {
-        if (!showSummary) return;
+        printSummary(root.getMetrics());
+    }
 
-        CoverageMetrics total = root.getMetrics();
+    void printSummary(@NotNull CoverageMetrics total) {
+        if (!showSummary) return;
 
         getLog().info("Overall Coverage Summary");
         getLog().info("------------------------");
@@ -624,12 +1444,21 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
      * Also includes partially covered lines with "partial: " prefix
      */
     @NotNull String formatMissingLines(@NotNull ISourceFileCoverage sourceFile) {
+        return formatMissingLines(sourceFile.getFirstLine(), sourceFile.getLastLine(), i -> sourceFile.getLine(i).getStatus());
+    }
+
+    /**
+     * Formats missing lines, see {@link #formatMissingLines(ISourceFileCoverage)}.
+     *
+     * @param lineStatus Gives the {@link ICounter} status of a line number
+     */
+    static @NotNull String formatMissingLines(int firstLine, int lastLine, @NotNull IntUnaryOperator lineStatus) {
         List<Integer> missingLines = new ArrayList<>();
         List<Integer> partialLines = new ArrayList<>();
 
         // Collect uncovered and partially covered lines
-        for (int i = sourceFile.getFirstLine(); i <= sourceFile.getLastLine(); i++) {
-            int status = sourceFile.getLine(i).getStatus();
+        for (int i = firstLine; i <= lastLine; i++) {
+            int status = lineStatus.applyAsInt(i);
             if (status == ICounter.NOT_COVERED) {
                 missingLines.add(i);
             } else if (status == ICounter.PARTLY_COVERED) {
@@ -689,9 +1518,17 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
      */
     boolean isSourceFileExcluded(@NotNull IPackageCoverage packageCoverage,
                                          @NotNull ISourceFileCoverage sourceFileCoverage) {
-        String filename = sourceFileCoverage.getName();
+        return isSourceFileExcluded(packageCoverage.getName(), sourceFileCoverage.getName());
+    }
+
+    /**
+     * Checks if a given source file should be excluded.
+     *
+     * @param packageName VM name of the package, e.g. "com/example"
+     * @param filename    Name of the source file, e.g. "Example.java"
+     */
+    boolean isSourceFileExcluded(@NotNull String packageName, @NotNull String filename) {
         String className = filename.substring(0, filename.lastIndexOf('.'));
-        String packageName = packageCoverage.getName();
         String classPath = packageName + "/" + className;
 
         // Construct potential file paths for Sonar pattern matching
@@ -716,6 +1553,20 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
     void buildDirectoryTreeAddNode(DirectoryNode root,
                                    @NotNull IPackageCoverage packageCoverage,
                                    @NotNull ISourceFileCoverage sourceFileCoverage) {
+        List<IClassCoverage> classesInFile = indexClassesBySourceFile(packageCoverage)
+                .getOrDefault(sourceFileCoverage.getName(), Collections.emptyList());
+        buildDirectoryTreeAddNode(root, packageCoverage, sourceFileCoverage, classesInFile);
+    }
+
+    /**
+     * Adds a source file to the directory tree unless excluded.
+     *
+     * @param classesInFile The classes of the package that were compiled from this source file
+     */
+    void buildDirectoryTreeAddNode(DirectoryNode root,
+                                   @NotNull IPackageCoverage packageCoverage,
+                                   @NotNull ISourceFileCoverage sourceFileCoverage,
+                                   @NotNull List<IClassCoverage> classesInFile) {
         if (isSourceFileExcluded(packageCoverage, sourceFileCoverage)) {
             return;
         }
@@ -728,12 +1579,6 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
         }
 
         String sourceFileName = sourceFileCoverage.getName();
-        List<IClassCoverage> classesInFile = new ArrayList<>();
-        for (IClassCoverage classCoverage : packageCoverage.getClasses()) {
-            if (classCoverage.getSourceFileName().equals(sourceFileName)) {
-                classesInFile.add(classCoverage);
-            }
-        }
 
         CoverageMetrics metrics = new CoverageMetrics();
         metrics.setTotalClasses(classesInFile.size());
@@ -751,9 +1596,26 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
         current.getSourceFiles().add(new SourceFileNode(sourceFileName, metrics, missingLines));
     }
 
+    /**
+     * Groups the classes of a package by the source file they were compiled from, in a single pass.
+     * Classes without source file information are left out, as they never belong to a source file node.
+     */
+    static @NotNull Map<String, List<IClassCoverage>> indexClassesBySourceFile(@NotNull IPackageCoverage packageCoverage) {
+        Map<String, List<IClassCoverage>> classesBySourceFile = new HashMap<>();
+        for (IClassCoverage classCoverage : packageCoverage.getClasses()) {
+            String sourceFileName = classCoverage.getSourceFileName();
+            if (sourceFileName != null) {
+                classesBySourceFile.computeIfAbsent(sourceFileName, k -> new ArrayList<>()).add(classCoverage);
+            }
+        }
+        return classesBySourceFile;
+    }
+
     void buildDirectoryTreeAddNode(DirectoryNode root, @NotNull IPackageCoverage packageCoverage) {
+        Map<String, List<IClassCoverage>> classesBySourceFile = indexClassesBySourceFile(packageCoverage);
         for (ISourceFileCoverage sourceFileCoverage : packageCoverage.getSourceFiles()) {
-            buildDirectoryTreeAddNode(root, packageCoverage, sourceFileCoverage);
+            List<IClassCoverage> classesInFile = classesBySourceFile.getOrDefault(sourceFileCoverage.getName(), Collections.emptyList());
+            buildDirectoryTreeAddNode(root, packageCoverage, sourceFileCoverage, classesInFile);
         }
     }
 
@@ -766,6 +1628,7 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
     /**
      * Builds a tree structure representing the package hierarchy and their coverage metrics.
      * Modified to use SourceFileNode instead of SourceFileCoverageData.
+     * The metrics of all directories are aggregated once, before the tree is returned.
      *
      * @param bundle The bundle containing coverage data for all analyzed classes
      * @return The root node of the directory tree containing coverage information
@@ -773,6 +1636,7 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
     @NotNull DirectoryNode buildDirectoryTree(@NotNull IBundleCoverage bundle) {
         DirectoryNode root = new DirectoryNode("");
         buildDirectoryTreeAddNode(root, bundle);
+        root.aggregate();
         return root;
     }
 
@@ -783,17 +1647,31 @@ public class JacocoConsoleReporterMojo extends AbstractMojo {
 
         getLog().info("Generating aggregated JaCoCo XML report to: " + xmlOutputFile.getAbsolutePath());
 
-        XMLFormatter xmlFormatter = new XMLFormatter();
-        try (FileOutputStream output = new FileOutputStream(xmlOutputFile)) {
-            IReportVisitor visitor = xmlFormatter.createVisitor(output);
-
-            // Visit the bundle with a MultiSourceFileLocator
-            // The XMLFormatter requires session info, but for aggregated reports we can use empty session info
-            visitor.visitInfo(Collections.emptyList(), Collections.emptyList());
-            visitor.visitBundle(bundle, new MultiSourceFileLocator(4));
-            visitor.visitEnd();
+        File temporary = temporaryXmlOutputFile();
+        try (XmlReportWriter xmlWriter = XmlReportWriter.open(temporary, XmlReportWriter.isGzip(xmlOutputFile), bundle.getName(), Collections.emptyMap())) {
+            xmlWriter.writeBundle(bundle);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary.toPath());
+            throw e;
         }
+        Files.move(temporary.toPath(), xmlOutputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
 
         getLog().info("XML report generated successfully.");
     }
-}
\ No newline at end of file
+
+    /**
+     * The XML report is written next to its target first, so a failed build never leaves a truncated report behind.
+     */
+    @NotNull File temporaryXmlOutputFile() {
+        return new File(xmlOutputFile.getPath() + ".tmp");
+    }
+
+    /**
+     * The caches of an analysis that was stopped, see {@link ClassAnalysisEngine.StopAnalysis}
+     */
+    @RequiredArgsConstructor
+    private static class StoppedAnalysis {
+        final @Nullable AnalysisCache analysisCache;
+        final @Nullable AnalysisCache lookupCache;
+    }
+}
@@ -0,0 +1,223 @@
+package io.github.svaningelgem;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the package declaration of a Java source file without reading the rest of the file.
+ * <p>
+ * The file is decoded through a small fixed buffer. Whitespace, comments and annotations (as in
+ * {@code package-info.java}) are skipped, and scanning stops at the {@code ;} ending the declaration.
+ * When the first real token is not {@code package}, the file has no package declaration and scanning stops as well.
+ */
+public class PackageDeclarationScanner {
+    static final int BUFFER_SIZE = 4096;
+    private static final int EOF = -1;
+
+    private final FileChannel channel;
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private boolean endOfInput;
+    private boolean drained;
+    private int pushedBack = EOF;
+
+    private PackageDeclarationScanner(@NotNull FileChannel channel) {
+        this.channel = channel;
+        chars.flip();
+    }
+
+    /**
+     * Returns the declared package name (e.g. "com.example"), or null if the file has no package declaration.
+     *
+     * @throws IOException if the file can't be read
+     */
+    public static @Nullable String scan(@NotNull Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new PackageDeclarationScanner(channel).scanPackage();
+        }
+    }
+
+    private @Nullable String scanPackage() throws IOException {
+        int c = read();
+        if (c == '\uFEFF') {
+            c = read();
+        }
+        unread(c);
+
+        while (true) {
+            c = skipWhitespaceAndComments();
+            if (c != '@') {
+                break;
+            }
+            if (!skipAnnotation()) {
+                return null;
+            }
+        }
+
+        if (!"package".equals(readIdentifier(c))) {
+            return null;
+        }
+
+        StringBuilder packageName = new StringBuilder();
+        while (true) {
+            c = skipWhitespaceAndComments();
+            if (c == ';') {
+                return packageName.length() == 0 ? null : packageName.toString();
+            } else if (c == '.' || (c != EOF && Character.isJavaIdentifierPart(c))) {
+                packageName.append((char) c);
+            } else {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Skips an annotation whose '@' was already read, including its arguments.
+     *
+     * @return false if the input ended or did not look like an annotation
+     */
+    private boolean skipAnnotation() throws IOException {
+        int c = skipWhitespaceAndComments();
+        if (c == EOF || !Character.isJavaIdentifierStart(c)) {
+            return false;
+        }
+
+        // Qualified name, e.g. javax.annotation.Generated
+        while (true) {
+            readIdentifier(c);
+            c = skipWhitespaceAndComments();
+            if (c != '.') {
+                break;
+            }
+            c = skipWhitespaceAndComments();
+            if (c == EOF || !Character.isJavaIdentifierStart(c)) {
+                return false;
+            }
+        }
+
+        if (c != '(') {
+            unread(c);
+            return true;
+        }
+
+        int depth = 1;
+        while (depth > 0) {
+            c = skipWhitespaceAndComments();
+            if (c == EOF) {
+                return false;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '"' || c == '\'') {
+                skipLiteral(c);
+            }
+        }
+        return true;
+    }
+
+    private void skipLiteral(int quote) throws IOException {
+        int c;
+        while ((c = read()) != EOF && c != quote) {
+            if (c == '\\') {
+                read();
+            }
+        }
+    }
+
+    private @NotNull String readIdentifier(int first) throws IOException {
+        StringBuilder identifier = new StringBuilder();
+        int c = first;
+        while (c != EOF && Character.isJavaIdentifierPart(c)) {
+            identifier.append((char) c);
+            c = read();
+        }
+        unread(c);
+        return identifier.toString();
+    }
+
+    /**
+     * Returns the first character that is neither whitespace nor part of a comment.
+     */
+    private int skipWhitespaceAndComments() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == EOF || !(Character.isWhitespace(c) || c == '/')) {
+                return c;
+            }
+            if (c != '/') {
+                continue;
+            }
+
+            int next = read();
+            if (next == '/') {
+                while ((c = read()) != EOF && c != '\n' && c != '\r') {
+                    // skip line comment
+                }
+            } else if (next == '*') {
+                int previous = 0;
+                while ((c = read()) != EOF && !(previous == '*' && c == '/')) {
+                    previous = c;
+                }
+            } else {
+                unread(next);
+                return '/';
+            }
+        }
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != EOF) {
+            int c = pushedBack;
+            pushedBack = EOF;
+            return c;
+        }
+
+        if (!chars.hasRemaining() && !fill()) {
+            return EOF;
+        }
+        return chars.get();
+    }
+
+    private boolean fill() throws IOException {
+        if (drained) {
+            return false;
+        }
+
+        chars.clear();
+        while (chars.position() == 0) {
+            if (!endOfInput && channel.read(bytes) < 0) {
+                endOfInput = true;
+            }
+
+            bytes.flip();
+            decoder.decode(bytes, chars, endOfInput);
+            bytes.compact();
+
+            if (endOfInput) {
+                decoder.flush(chars);
+                drained = true;
+                break;
+            }
+        }
+        chars.flip();
+        return chars.hasRemaining();
+    }
+}
@@ -0,0 +1,158 @@
+package io.github.svaningelgem;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs a list of tasks on a bounded pool of worker threads.
+ * Results are always returned in the order of the submitted tasks, so callers can merge them deterministically.
+ */
+public class ParallelTasks {
+    /**
+     * How many chunks each worker thread gets on average, to even out differences in work per item
+     */
+    static final int CHUNKS_PER_THREAD = 4;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Resolves the configured amount of threads: zero or less means "use all available processors".
+     */
+    static int resolveThreads(int configured) {
+        return configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Splits the items into contiguous, evenly sized chunks, a few per worker thread.
+     */
+    static <T> @NotNull List<List<T>> chunks(@NotNull List<T> items, int threads) {
+        int partCount = Math.max(1, Math.min(items.size(), threads * CHUNKS_PER_THREAD));
+        int partSize = (items.size() + partCount - 1) / partCount;
+
+        List<List<T>> result = new ArrayList<>();
+        for (int start = 0; start < items.size(); start += partSize) {
+            result.add(items.subList(start, Math.min(items.size(), start + partSize)));
+        }
+        return result;
+    }
+
+    /**
+     * Executes all tasks and returns their results in submission order.
+     * When only one thread is requested (or there is only one task), everything runs on the calling thread.
+     *
+     * @param threads Maximum number of worker threads
+     * @param tasks   Tasks to execute
+     * @return The results, in the same order as the tasks
+     * @throws IOException if any of the tasks failed with an IOException
+     */
+    static <T> @NotNull List<T> run(int threads, @NotNull List<? extends Callable<T>> tasks) throws IOException {
+        return run(threads, tasks, null);
+    }
+
+    /**
+     * See {@link #run(int, List)}; the CPU time and allocations of the worker threads count for the open phase of
+     * the timings, if any.
+     */
+    static <T> @NotNull List<T> run(int threads, @NotNull List<? extends Callable<T>> tasks, @Nullable ReportTimings timings) throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+        forEach(threads, tasks, timings, results::add);
+        return results;
+    }
+
+    /**
+     * Executes all tasks and hands their results to the consumer in submission order, each as soon as it and all
+     * earlier results are available. Results that were consumed are not kept.
+     * When only one thread is requested (or there is only one task), everything runs on the calling thread.
+     *
+     * @param threads  Maximum number of worker threads
+     * @param tasks    Tasks to execute
+     * @param consumer Receives the results on the calling thread
+     * @throws IOException if any of the tasks failed with an IOException
+     */
+    static <T> void forEach(int threads, @NotNull List<? extends Callable<T>> tasks, @NotNull Consumer<T> consumer) throws IOException {
+        forEach(threads, tasks, null, consumer);
+    }
+
+    /**
+     * See {@link #forEach(int, List, Consumer)}; the CPU time and allocations of the worker threads count for the
+     * open phase of the timings, if any.
+     */
+    static <T> void forEach(int threads, @NotNull List<? extends Callable<T>> tasks, @Nullable ReportTimings timings,
+                            @NotNull Consumer<T> consumer) throws IOException {
+        if (threads <= 1 || tasks.size() <= 1) {
+            for (Callable<T> task : tasks) {
+                consumer.accept(call(task));
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()), daemonThreadFactory());
+        try {
+            List<Future<T>> futures = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(timings == null ? task : timings.measured(task)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                T result = get(futures.get(i));
+                futures.set(i, null);
+                consumer.accept(result);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T call(@NotNull Callable<T> task) throws IOException {
+        try {
+            return task.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    static <T> T get(@NotNull Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for worker threads");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    static @NotNull ThreadFactory daemonThreadFactory() {
+        return runnable -> {
+            Thread thread = new Thread(runnable, "jacoco-console-reporter-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,254 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compact store for execution data while exec files are being merged.
+ * <p>
+ * JaCoCo's {@link ExecutionDataStore} keeps a boxed map entry, an {@link ExecutionData} object and a
+ * {@code boolean[]} (one byte per probe) for every class. This store keeps the probes of all classes as bits in one
+ * shared {@code long[]} arena, found through an open-addressing table keyed by the class id. Merging is a word-wise
+ * OR. The data is only converted to JaCoCo's types at the analysis boundary, see {@link #toExecutionDataStore()}.
+ * <p>
+ * Merging follows the rules of {@link ExecutionDataStore#put}, including its errors for incompatible data.
+ * The store is not thread-safe.
+ */
+public class ProbeStore implements IExecutionDataVisitor {
+    private static final int NO_ENTRY = -1;
+
+    // Open-addressing table: class id -> entry index
+    private long[] tableIds = new long[16];
+    private int[] tableEntries = filledTable(16);
+
+    // Entries, in insertion order
+    private long[] ids = new long[8];
+    private String[] names = new String[8];
+    private int[] probeCounts = new int[8];
+    private int[] offsets = new int[8];
+    private int size;
+
+    // Probe bits of all entries; bit i of an entry is bit (i % 64) of word (offset + i / 64)
+    private long[] arena = new long[64];
+    private int arenaUsed;
+
+    /**
+     * Number of classes in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void visitClassExecution(@NotNull ExecutionData data) {
+        put(data);
+    }
+
+    /**
+     * Adds the probes of a class, OR-ing them with the probes already stored for the same id.
+     *
+     * @throws IllegalStateException if the stored data for this id has another name or number of probes
+     */
+    public void put(@NotNull ExecutionData data) {
+        boolean[] probes = data.getProbes();
+        int offset = offsetFor(data.getId(), data.getName(), probes.length);
+        for (int i = 0; i < probes.length; i++) {
+            if (probes[i]) {
+                arena[offset + (i >>> 6)] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Adds the probes of a class as packed in an exec file: the bits of each byte from least to most significant.
+     * The bytes are consumed from the buffer.
+     */
+    void putPacked(long id, @NotNull String name, int probeCount, @NotNull ByteBuffer packed) {
+        int offset = offsetFor(id, name, probeCount);
+        int byteCount = (probeCount + 7) >>> 3;
+        int position = packed.position();
+        for (int i = 0; i < byteCount; i++) {
+            arena[offset + (i >>> 3)] |= (packed.get(position + i) & 0xFFL) << ((i & 7) << 3);
+        }
+        packed.position(position + byteCount);
+    }
+
+    /**
+     * Merges all classes of another store into this one.
+     */
+    public void putAll(@NotNull ProbeStore other) {
+        for (int entry = 0; entry < other.size; entry++) {
+            int offset = offsetFor(other.ids[entry], other.names[entry], other.probeCounts[entry]);
+            int otherOffset = other.offsets[entry];
+            for (int word = 0; word < wordCount(other.probeCounts[entry]); word++) {
+                arena[offset + word] |= other.arena[otherOffset + word];
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the data of a class, or null if the store has no data for the id.
+     */
+    public @Nullable ExecutionData get(long id) {
+        int entry = find(id);
+        return entry == NO_ENTRY ? null : toExecutionData(entry);
+    }
+
+    /**
+     * Converts the store into JaCoCo's representation, for the analyzer.
+     */
+    public @NotNull ExecutionDataStore toExecutionDataStore() {
+        ExecutionDataStore store = new ExecutionDataStore();
+        for (int entry = 0; entry < size; entry++) {
+            store.put(toExecutionData(entry));
+        }
+        return store;
+    }
+
+    /**
+     * Writes all classes with their packed probes.
+     */
+    void write(@NotNull DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int entry = 0; entry < size; entry++) {
+            out.writeLong(ids[entry]);
+            out.writeUTF(names[entry]);
+            out.writeInt(probeCounts[entry]);
+            for (int word = 0; word < wordCount(probeCounts[entry]); word++) {
+                out.writeLong(arena[offsets[entry] + word]);
+            }
+        }
+    }
+
+    /**
+     * Reads a store written by {@link #write}.
+     */
+    static @NotNull ProbeStore read(@NotNull DataInput in) throws IOException {
+        ProbeStore store = new ProbeStore();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long id = in.readLong();
+            String name = in.readUTF();
+            int probeCount = in.readInt();
+            if (probeCount < 0) {
+                throw new IOException("Invalid probe count " + probeCount + " for class " + name);
+            }
+
+            int offset = store.offsetFor(id, name, probeCount);
+            for (int word = 0; word < wordCount(probeCount); word++) {
+                store.arena[offset + word] |= in.readLong();
+            }
+        }
+        return store;
+    }
+
+    private @NotNull ExecutionData toExecutionData(int entry) {
+        boolean[] probes = new boolean[probeCounts[entry]];
+        int offset = offsets[entry];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = (arena[offset + (i >>> 6)] & (1L << i)) != 0;
+        }
+        return new ExecutionData(ids[entry], names[entry], probes);
+    }
+
+    /**
+     * Finds or creates the entry of a class and returns the offset of its probes in the arena.
+     */
+    private int offsetFor(long id, @NotNull String name, int probeCount) {
+        int entry = find(id);
+        if (entry == NO_ENTRY) {
+            // insert() may grow the arrays, so it has to run before they are read
+            entry = insert(id, name, probeCount);
+            return offsets[entry];
+        }
+
+        if (!names[entry].equals(name)) {
+            throw new IllegalStateException(String.format("Different class names %s and %s for id %016x.", names[entry], name, id));
+        }
+        if (probeCounts[entry] != probeCount) {
+            throw new IllegalStateException(String.format("Incompatible execution data for class %s with id %016x.", name, id));
+        }
+        return offsets[entry];
+    }
+
+    private int find(long id) {
+        int mask = tableIds.length - 1;
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            int entry = tableEntries[slot];
+            if (entry == NO_ENTRY || tableIds[slot] == id) {
+                return entry;
+            }
+        }
+    }
+
+    private int insert(long id, @NotNull String name, int probeCount) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            probeCounts = Arrays.copyOf(probeCounts, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+        }
+
+        int words = wordCount(probeCount);
+        if (arenaUsed + words > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaUsed + words));
+        }
+
+        int entry = size++;
+        ids[entry] = id;
+        names[entry] = name;
+        probeCounts[entry] = probeCount;
+        offsets[entry] = arenaUsed;
+        arenaUsed += words;
+
+        if (size * 3 > tableIds.length * 2) {
+            rehash(tableIds.length * 2);
+        } else {
+            addToTable(id, entry);
+        }
+        return entry;
+    }
+
+    private void rehash(int capacity) {
+        tableIds = new long[capacity];
+        tableEntries = filledTable(capacity);
+        for (int entry = 0; entry < size; entry++) {
+            addToTable(ids[entry], entry);
+        }
+    }
+
+    private void addToTable(long id, int entry) {
+        int mask = tableIds.length - 1;
+        int slot = hash(id) & mask;
+        while (tableEntries[slot] != NO_ENTRY) {
+            slot = (slot + 1) & mask;
+        }
+        tableIds[slot] = id;
+        tableEntries[slot] = entry;
+    }
+
+    private static int hash(long id) {
+        long mixed = id * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    private static int wordCount(int probeCount) {
+        return (probeCount + 63) >>> 6;
+    }
+
+    private static int[] filledTable(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, NO_ENTRY);
+        return table;
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.svaningelgem;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Completion barrier for deferred reporting in parallel builds.
+ * <p>
+ * With {@code -T}, the last project of the reactor is not necessarily the last one to finish, so every module reports
+ * here when it collected its data. Only the module that completes the reactor gets to generate the report, exactly once.
+ * The progress is reset whenever a new session shows up, as the static state outlives a build in a Maven daemon.
+ */
+public class ReactorProgress {
+    private final Set<String> finishedProjects = new HashSet<>();
+    private Object session;
+    private boolean reported;
+
+    /**
+     * Marks a project as finished.
+     *
+     * @param session    The build session the project belongs to
+     * @param projectId  The project that finished
+     * @param projectIds All projects of the reactor that report here
+     * @return true for the single call that completed the reactor
+     */
+    public synchronized boolean finish(@NotNull Object session, @NotNull String projectId, @NotNull Collection<String> projectIds) {
+        if (this.session != session) {
+            clear();
+            this.session = session;
+        }
+
+        finishedProjects.add(projectId);
+        if (reported || !finishedProjects.containsAll(projectIds)) {
+            return false;
+        }
+
+        reported = true;
+        return true;
+    }
+
+    /**
+     * Number of the given projects that did not finish yet in the current session
+     */
+    public synchronized int getPendingCount(@NotNull Collection<String> projectIds) {
+        return (int) projectIds.stream().filter(projectId -> !finishedProjects.contains(projectId)).count();
+    }
+
+    /**
+     * Number of projects that finished in the current session
+     */
+    public synchronized int getFinishedCount() {
+        return finishedProjects.size();
+    }
+
+    public synchronized void clear() {
+        finishedProjects.clear();
+        session = null;
+        reported = false;
+    }
+}
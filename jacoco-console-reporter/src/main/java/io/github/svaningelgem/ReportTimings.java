@@ -0,0 +1,157 @@
+package io.github.svaningelgem;
+
+import lombok.Data;
+import org.apache.maven.plugin.logging.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wall time, CPU time and allocated bytes of the phases of a report, with the number of files, classes and patterns
+ * each phase handled.
+ * <p>
+ * CPU time and allocations are measured per thread with the {@link ThreadMXBean}: those of the calling thread, plus
+ * those of the worker tasks of {@link ParallelTasks} that were given these timings and finished during the phase.
+ * They are -1 when the JVM can't measure them.
+ */
+public class ReportTimings {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final List<Phase> phases = new ArrayList<>();
+    private final LongAdder workerCpuTime = new LongAdder();
+    private final LongAdder workerAllocatedBytes = new LongAdder();
+
+    /**
+     * Starts measuring a phase; it ends when it is closed
+     */
+    public @NotNull Phase start(@NotNull String name) {
+        Phase phase = new Phase(name);
+        phases.add(phase);
+        return phase;
+    }
+
+    public @NotNull List<Phase> getPhases() {
+        return Collections.unmodifiableList(phases);
+    }
+
+    /**
+     * Logs the phases as a table
+     */
+    public void print(@NotNull Log log) {
+        String format = "%-10s %10s %10s %14s %8s %8s %8s";
+        log.info("--- report timings ---");
+        log.info(String.format(format, "phase", "wall ms", "cpu ms", "allocated MB", "files", "classes", "patterns"));
+        for (Phase phase : phases) {
+            log.info(String.format(format, phase.getName(), millis(phase.getWallTime()), millis(phase.getCpuTime()),
+                    phase.getAllocatedBytes() < 0 ? "-" : String.format(Locale.ROOT, "%.1f", phase.getAllocatedBytes() / (1024.0 * 1024.0)),
+                    phase.getFiles(), phase.getClasses(), phase.getPatterns()));
+        }
+    }
+
+    private static @NotNull String millis(long nanos) {
+        return nanos < 0 ? "-" : String.valueOf(nanos / 1_000_000);
+    }
+
+    /**
+     * The phases as JSON; times are in nanoseconds
+     */
+    public @NotNull String toJson() {
+        StringBuilder json = new StringBuilder("{\n  \"phases\": [");
+        for (int i = 0; i < phases.size(); i++) {
+            Phase phase = phases.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"name\": \"").append(phase.getName()).append('"')
+                    .append(", \"wallTimeNanos\": ").append(phase.getWallTime())
+                    .append(", \"cpuTimeNanos\": ").append(phase.getCpuTime())
+                    .append(", \"allocatedBytes\": ").append(phase.getAllocatedBytes())
+                    .append(", \"files\": ").append(phase.getFiles())
+                    .append(", \"classes\": ").append(phase.getClasses())
+                    .append(", \"patterns\": ").append(phase.getPatterns())
+                    .append('}');
+        }
+        return json.append("\n  ]\n}\n").toString();
+    }
+
+    /**
+     * Writes {@link #toJson()} to the file, creating its directory if needed
+     */
+    public void write(@NotNull File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+        Files.write(file.toPath(), toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Wraps a task that runs on a worker thread, so its CPU time and allocations count for the current phase
+     */
+    <T> @NotNull Callable<T> measured(@NotNull Callable<T> task) {
+        return () -> {
+            long cpuTime = threadCpuTime();
+            long allocatedBytes = threadAllocatedBytes();
+            try {
+                return task.call();
+            } finally {
+                if (cpuTime >= 0) {
+                    workerCpuTime.add(threadCpuTime() - cpuTime);
+                }
+                if (allocatedBytes >= 0) {
+                    workerAllocatedBytes.add(threadAllocatedBytes() - allocatedBytes);
+                }
+            }
+        };
+    }
+
+    static long threadCpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    static long threadAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A single phase. Its measurements are complete once it is closed.
+     */
+    @Data
+    public class Phase implements AutoCloseable {
+        private final String name;
+        private long wallTime;
+        private long cpuTime;
+        private long allocatedBytes;
+        private int files;
+        private int classes;
+        private int patterns;
+
+        private final long startWallTime = System.nanoTime();
+        private final long startCpuTime = threadCpuTime();
+        private final long startAllocatedBytes = threadAllocatedBytes();
+        private final long startWorkerCpuTime = workerCpuTime.sum();
+        private final long startWorkerAllocatedBytes = workerAllocatedBytes.sum();
+
+        @Override
+        public void close() {
+            wallTime = System.nanoTime() - startWallTime;
+            cpuTime = startCpuTime < 0 ? -1 : threadCpuTime() - startCpuTime + workerCpuTime.sum() - startWorkerCpuTime;
+            allocatedBytes = startAllocatedBytes < 0 ? -1 : threadAllocatedBytes() - startAllocatedBytes + workerAllocatedBytes.sum() - startWorkerAllocatedBytes;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.svaningelgem;
+
+import org.apache.maven.plugin.logging.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Reads and writes the binary files that are kept from one build to the next, such as the {@link AnalysisCache}.
+ * <p>
+ * Every file starts with a magic number and a format version. These files only speed up the report, so a missing
+ * file, one from another version or one that can't be read is ignored and the store starts empty. A file is written
+ * next to its final location and then moved over it, so an interrupted build never leaves a truncated file behind.
+ */
+final class StateFile {
+    private StateFile() {
+    }
+
+    /**
+     * Reads the content that follows the header
+     */
+    interface Reader<T> {
+        /**
+         * @return The loaded store, or null to ignore the file; the reader logs why
+         */
+        @Nullable T read(@NotNull DataInputStream in) throws IOException;
+    }
+
+    /**
+     * Writes the content that follows the header
+     */
+    interface Writer {
+        void write(@NotNull DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Reads a file written by {@link #write}.
+     *
+     * @param description What the file holds, e.g. "analysis cache", for the log
+     * @return What the reader returned, or null when the file is missing, from another version or unreadable
+     */
+    static <T> @Nullable T read(@NotNull File file, int magic, int version, @NotNull String description, @NotNull Log log,
+                                @NotNull Reader<T> reader) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != magic || in.readInt() != version) {
+                log.debug("Ignoring " + description + " from another version: " + file);
+                return null;
+            }
+            return reader.read(in);
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Ignoring unreadable " + description + " " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the header and the content, creating the directory of the file if needed
+     */
+    static void write(@NotNull File file, int magic, int version, @NotNull Writer writer) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+            Files.createDirectories(directory.toPath());
+        }
+
+        File temporary = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            out.writeInt(magic);
+            out.writeInt(version);
+            writer.write(out);
+        }
+
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,190 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.CoverageNodeImpl;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageVisitor;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.report.internal.xml.ReportElement;
+import org.jacoco.report.internal.xml.XMLCoverageWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a JaCoCo XML report package by package, through a buffered and optionally gzipped stream.
+ * <p>
+ * The output is the same as that of JaCoCo's XMLFormatter for an aggregated bundle without session info: the
+ * packages are written with {@link XMLCoverageWriter}, the totals of the report are added up and written last.
+ * <p>
+ * As a {@link ICoverageVisitor}, the classes are collected per package while they are analyzed. A package is written
+ * and dropped as soon as all of its class files were visited, so only the packages in progress are kept in memory.
+ */
+public class XmlReportWriter implements ICoverageVisitor, Closeable {
+    static final String ENCODING = "UTF-8";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ReportElement report;
+    private final CoverageNodeImpl total;
+    private final Map<String, Integer> remainingClasses;
+    private final Map<String, CoverageBuilder> packages = new LinkedHashMap<>();
+    private final Set<String> writtenPackages = new HashSet<>();
+    private boolean exact = true;
+
+    /**
+     * @param out              Stream to write to; closed with the writer
+     * @param name             Name of the report
+     * @param remainingClasses Number of class files per VM package name, see {@link #countClassesPerPackage}
+     */
+    XmlReportWriter(@NotNull OutputStream out, @NotNull String name, @NotNull Map<String, Integer> remainingClasses) throws IOException {
+        this.report = new ReportElement(name, out, ENCODING);
+        this.total = new CoverageNodeImpl(CoverageNodeImpl.ElementType.GROUP, name);
+        this.remainingClasses = new HashMap<>(remainingClasses);
+    }
+
+    /**
+     * Opens a report file
+     *
+     * @param gzip Whether to compress the report, see {@link #isGzip}
+     */
+    static @NotNull XmlReportWriter open(@NotNull File file, boolean gzip, @NotNull String name, @NotNull Map<String, Integer> remainingClasses) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : new BufferedOutputStream(out, BUFFER_SIZE);
+            return new XmlReportWriter(out, name, remainingClasses);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reports with a name ending in ".gz" are gzipped
+     */
+    static boolean isGzip(@NotNull File file) {
+        return file.getName().endsWith(".gz");
+    }
+
+    /**
+     * Counts the class files per VM package name.
+     *
+     * @return The counts, or null when the name of any class file is unknown
+     */
+    static @Nullable Map<String, Integer> countClassesPerPackage(@NotNull List<ClassFile> classFiles) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (ClassFile classFile : classFiles) {
+            String className = classFile.getClassName();
+            if (className == null) {
+                return null;
+            }
+            counts.merge(className.substring(0, Math.max(className.lastIndexOf('/'), 0)), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Override
+    public void visitCoverage(@NotNull IClassCoverage coverage) {
+        String packageName = coverage.getPackageName();
+        if (writtenPackages.contains(packageName)) {
+            // A class file was not where its name said: the package it belongs to is already written
+            exact = false;
+            return;
+        }
+
+        try {
+            packages.computeIfAbsent(packageName, k -> new CoverageBuilder()).visitCoverage(coverage);
+        } catch (IllegalStateException e) {
+            // Two different classes with the same name, which the bundle reports as an error
+            exact = false;
+        }
+
+        Integer remaining = remainingClasses.computeIfPresent(packageName, (k, count) -> count - 1);
+        if (remaining != null && remaining <= 0) {
+            try {
+                writePackage(packageName);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * False when a package was written before all of its classes were seen
+     */
+    boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Writes the packages of a complete bundle
+     */
+    void writeBundle(@NotNull IBundleCoverage bundle) throws IOException {
+        for (IPackageCoverage packageCoverage : bundle.getPackages()) {
+            writePackage(packageCoverage);
+        }
+    }
+
+    private void writePackage(@NotNull String packageName) throws IOException {
+        CoverageBuilder builder = packages.remove(packageName);
+        writtenPackages.add(packageName);
+        if (builder != null) {
+            writeBundle(builder.getBundle(packageName));
+        }
+    }
+
+    private void writePackage(@NotNull IPackageCoverage packageCoverage) throws IOException {
+        // A bundle without counters of its own: only the package ends up in the report
+        XMLCoverageWriter.writeBundle(new PackageBundle(packageCoverage), report);
+        total.increment(packageCoverage);
+    }
+
+    /**
+     * Writes the packages that are still open and the totals, and closes the report
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (String packageName : packages.keySet().toArray(new String[0])) {
+                writePackage(packageName);
+            }
+            XMLCoverageWriter.writeCounters(total, report);
+        } finally {
+            report.close();
+        }
+    }
+
+    /**
+     * Wraps a single package
+     */
+    private static class PackageBundle extends CoverageNodeImpl implements IBundleCoverage {
+        private final IPackageCoverage packageCoverage;
+
+        PackageBundle(@NotNull IPackageCoverage packageCoverage) {
+            super(ElementType.BUNDLE, packageCoverage.getName());
+            this.packageCoverage = packageCoverage;
+        }
+
+        @Override
+        public Collection<IPackageCoverage> getPackages() {
+            return Collections.singletonList(packageCoverage);
+        }
+    }
+}
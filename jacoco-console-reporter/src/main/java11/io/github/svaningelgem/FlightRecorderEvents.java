@@ -0,0 +1,148 @@
+package io.github.svaningelgem;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+
+/**
+ * Creates the JDK Flight Recorder events of the reporter; the Java 11 version of the multi-release jar.
+ * <p>
+ * An event is only created when a recording enables it, otherwise {@link FlightRecorderEvent#DISABLED} is returned.
+ */
+public class FlightRecorderEvents {
+    private static final String CATEGORY = "JaCoCo Console Reporter";
+
+    private FlightRecorderEvents() {
+    }
+
+    public static @NotNull FlightRecorderEvent.ExecFileRead execFileRead(@NotNull File execFile) {
+        ExecFileReadEvent event = new ExecFileReadEvent();
+        if (!event.isEnabled()) {
+            return FlightRecorderEvent.DISABLED;
+        }
+        event.path = execFile.getPath();
+        event.begin();
+        return event;
+    }
+
+    public static @NotNull FlightRecorderEvent.ClassAnalysis classAnalysis(@NotNull String location) {
+        ClassAnalysisEvent event = new ClassAnalysisEvent();
+        if (!event.isEnabled()) {
+            return FlightRecorderEvent.DISABLED;
+        }
+        event.location = location;
+        event.begin();
+        return event;
+    }
+
+    public static @NotNull FlightRecorderEvent.ExclusionChecks exclusionChecks(@NotNull String batch, int patterns) {
+        ExclusionChecksEvent event = new ExclusionChecksEvent();
+        if (!event.isEnabled()) {
+            return FlightRecorderEvent.DISABLED;
+        }
+        event.batch = batch;
+        event.patterns = patterns;
+        event.begin();
+        return event;
+    }
+
+    @Name("io.github.svaningelgem.ExecFileRead")
+    @Label("Exec File Read")
+    @Category(CATEGORY)
+    @Description("Reading and merging one JaCoCo exec file")
+    public static class ExecFileReadEvent extends Event implements FlightRecorderEvent.ExecFileRead {
+        @Label("Path")
+        String path;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Classes")
+        @Description("Execution data entries in the file, including the skipped ones")
+        int classes;
+
+        @Override
+        public void setBytes(long bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void setClasses(int classes) {
+            this.classes = classes;
+        }
+
+        @Override
+        public void close() {
+            commit();
+        }
+    }
+
+    @Name("io.github.svaningelgem.ClassAnalysis")
+    @Label("Class Analysis")
+    @Category(CATEGORY)
+    @Description("Analyzing one class file, or restoring it from the analysis cache")
+    public static class ClassAnalysisEvent extends Event implements FlightRecorderEvent.ClassAnalysis {
+        @Label("Location")
+        String location;
+
+        @Label("Bytes")
+        @DataAmount
+        int bytes;
+
+        @Label("Cached")
+        boolean cached;
+
+        @Override
+        public void setBytes(int bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void setCached(boolean cached) {
+            this.cached = cached;
+        }
+
+        @Override
+        public void close() {
+            commit();
+        }
+    }
+
+    @Name("io.github.svaningelgem.ExclusionChecks")
+    @Label("Exclusion Checks")
+    @Category(CATEGORY)
+    @Description("A batch of exclusion checks, e.g. all class files of a directory")
+    public static class ExclusionChecksEvent extends Event implements FlightRecorderEvent.ExclusionChecks {
+        @Label("Batch")
+        String batch;
+
+        @Label("Patterns")
+        int patterns;
+
+        @Label("Checks")
+        int checks;
+
+        @Label("Excluded")
+        int excluded;
+
+        @Override
+        public void check(boolean excluded) {
+            checks++;
+            if (excluded) {
+                this.excluded++;
+            }
+        }
+
+        @Override
+        public void close() {
+            commit();
+        }
+    }
+}
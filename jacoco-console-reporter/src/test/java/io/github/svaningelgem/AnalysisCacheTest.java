@@ -0,0 +1,227 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AnalysisCacheTest extends BaseTestClass {
+    private Map<String, String> analyze(ExecutionDataStore store, AnalysisCache cache) throws Exception {
+        JacocoConsoleReporterMojo.collectedClassesPaths.clear();
+        JacocoConsoleReporterMojo.collectedClassesPaths.add(testProjectClasses);
+        addMainProjectClasses();
+
+        CoverageBuilder builder = new CoverageBuilder();
+        new ClassAnalysisEngine(store, 2, log, cache).analyze(mojo.collectClassFiles(), builder);
+
+        Map<String, String> summary = new TreeMap<>();
+        for (IClassCoverage coverage : builder.getClasses()) {
+            StringBuilder description = new StringBuilder();
+            describe(coverage, description);
+            description.append(coverage.getId()).append(coverage.isNoMatch()).append(coverage.getSourceFileName());
+            for (IMethodCoverage method : coverage.getMethods()) {
+                description.append('\n').append(method.getName()).append(method.getDesc());
+                describe(method, description);
+            }
+            summary.put(coverage.getName(), description.toString());
+        }
+        return summary;
+    }
+
+    private static void describe(ISourceNode node, StringBuilder description) {
+        for (ICoverageNode.CounterEntity entity : ICoverageNode.CounterEntity.values()) {
+            description.append(node.getCounter(entity)).append(' ');
+        }
+        for (int nr = node.getFirstLine(); nr <= node.getLastLine() && nr != ISourceNode.UNKNOWN_LINE; nr++) {
+            description.append(nr).append(':').append(node.getLine(nr).getInstructionCounter())
+                    .append(node.getLine(nr).getBranchCounter()).append(' ');
+        }
+    }
+
+    private ExecutionDataStore loadTestProjectExecutionData() throws Exception {
+        assertTrue("We need the test project's jacoco.exec!", testProjectJacocoExec.exists());
+        return new ExecutionDataMerger().loadExecutionData(Collections.singleton(testProjectJacocoExec));
+    }
+
+    @Test
+    public void testRestoredCoverageMatchesAnalysis() throws Exception {
+        ExecutionDataStore store = loadTestProjectExecutionData();
+        File cacheFile = new File(temporaryFolder.getRoot(), "cache/analysis.cache");
+
+        AnalysisCache cache = AnalysisCache.load(cacheFile, log);
+        Map<String, String> analyzed = analyze(store, cache);
+        assertEquals(0, cache.getHits());
+        cache.save(cacheFile);
+        assertTrue(cacheFile.exists());
+
+        AnalysisCache reloaded = AnalysisCache.load(cacheFile, log);
+        Map<String, String> restored = analyze(store, reloaded);
+
+        assertFalse(analyzed.isEmpty());
+        assertEquals(0, reloaded.getMisses());
+        assertEquals(analyzed, restored);
+    }
+
+    @Test
+    public void testChangedExecutionDataIsAnalyzedAgain() throws Exception {
+        ExecutionDataStore store = loadTestProjectExecutionData();
+        AnalysisCache cache = new AnalysisCache();
+        analyze(store, cache);
+
+        Map<String, String> withoutData = analyze(new ExecutionDataStore(), cache);
+        Map<String, String> expected = analyze(new ExecutionDataStore(), null);
+
+        assertTrue(cache.getMisses() > 0);
+        assertEquals(expected, withoutData);
+    }
+
+    @Test
+    public void testUnexecutedClassesReuseEntriesOfOtherExecutionData() throws Exception {
+        ExecutionDataStore store = loadTestProjectExecutionData();
+        AnalysisCache cache = new AnalysisCache();
+        cache.setReuseForUnexecutedClasses(true);
+        analyze(store, cache);
+        int misses = cache.getMisses();
+
+        Map<String, String> withoutData = analyze(new ExecutionDataStore(), cache);
+        Map<String, String> expected = analyze(new ExecutionDataStore(), null);
+
+        assertEquals(expected, withoutData);
+        assertEquals(misses, cache.getMisses());
+        assertTrue(cache.getUnexecutedHits() > 0);
+
+        // Classes that do have execution data still need their own entry
+        Map<String, String> withData = analyze(store, cache);
+        assertEquals(analyze(store, null), withData);
+    }
+
+    @Test
+    public void testUnusedEntriesAreDropped() throws Exception {
+        ExecutionDataStore store = loadTestProjectExecutionData();
+        File cacheFile = temporaryFolder.newFile("analysis.cache");
+
+        AnalysisCache cache = new AnalysisCache();
+        analyze(store, cache);
+        cache.save(cacheFile);
+        int fullSize = AnalysisCache.load(cacheFile, log).size();
+
+        JacocoConsoleReporterMojo.collectedClassesPaths.clear();
+        JacocoConsoleReporterMojo.collectedClassesPaths.add(testProjectClasses);
+        AnalysisCache partial = AnalysisCache.load(cacheFile, log);
+        new ClassAnalysisEngine(store, 1, log, partial).analyze(mojo.collectClassFiles(), new CoverageBuilder());
+        partial.save(cacheFile);
+
+        int partialSize = AnalysisCache.load(cacheFile, log).size();
+        assertTrue(partialSize > 0);
+        assertTrue(partialSize < fullSize);
+    }
+
+    @Test
+    public void testCorruptCacheIsIgnored() throws Exception {
+        File cacheFile = temporaryFolder.newFile("corrupt.cache");
+        Files.write(cacheFile.toPath(), new byte[]{0x4A, 0x43, 0x52, 0x43, 0, 0, 0, 1, 0});
+
+        AnalysisCache cache = AnalysisCache.load(cacheFile, log);
+
+        assertEquals(0, cache.size());
+        assertTrue(log.writtenData.stream().anyMatch(s -> s.startsWith("[debug] Ignoring unreadable analysis cache")));
+    }
+
+    @Test
+    public void testOtherFormatIsIgnored() throws Exception {
+        File cacheFile = temporaryFolder.newFile("other.cache");
+        Files.write(cacheFile.toPath(), "not a cache at all".getBytes());
+
+        assertEquals(0, AnalysisCache.load(cacheFile, log).size());
+        assertTrue(log.writtenData.stream().anyMatch(s -> s.startsWith("[debug] Ignoring analysis cache from another version")));
+    }
+
+    private static ExecutionDataStore store(boolean... probes) {
+        ExecutionDataStore store = new ExecutionDataStore();
+        store.put(new ExecutionData(1, "com/example/A", probes));
+        return store;
+    }
+
+    @Test
+    public void testTakenOverEntriesDontReplaceExistingOnes() throws Exception {
+        ExecutionDataStore previousBuild = store(true, false);
+        ExecutionDataStore module = store(false, true);
+        AnalysisCache cache = new AnalysisCache();
+        cache.put(1, previousBuild, Collections.emptyList());
+        AnalysisCache pipelineResults = new AnalysisCache();
+        pipelineResults.put(1, module, Collections.emptyList());
+        pipelineResults.put(2, module, Collections.emptyList());
+
+        cache.putAll(pipelineResults);
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(1, previousBuild));
+        assertNotNull(cache.get(1, module));
+        assertNull(cache.get(1, store(true, true)));
+        assertEquals(2, cache.getHits());
+
+        // The entry that matched last is the one written back
+        File cacheFile = new File(temporaryFolder.getRoot(), "taken-over.cache");
+        cache.save(cacheFile);
+        AnalysisCache saved = AnalysisCache.load(cacheFile, log);
+        assertNotNull(saved.get(1, module));
+        assertNull(saved.get(1, previousBuild));
+    }
+
+    @Test
+    public void testProbeHash() {
+        assertEquals(AnalysisCache.NO_PROBES, AnalysisCache.probeHash(null));
+        long empty = AnalysisCache.probeHash(new ExecutionData(1, "a", new boolean[0]));
+        long oneMissed = AnalysisCache.probeHash(new ExecutionData(1, "a", new boolean[1]));
+        long oneHit = AnalysisCache.probeHash(new ExecutionData(1, "a", new boolean[]{true}));
+
+        assertFalse(empty == AnalysisCache.NO_PROBES);
+        assertFalse(empty == oneMissed);
+        assertFalse(oneMissed == oneHit);
+    }
+
+    @Test
+    public void testMojoUsesCacheBetweenRuns() throws Exception {
+        assertTrue("We need the main projects compiled files!", mainProjectClasses.exists());
+        addMainProjectClasses();
+
+        mojo.useAnalysisCache = true;
+        mojo.analysisCacheFile = new File(targetDir, "jacoco-console-reporter/analysis.cache");
+
+        IBundleCoverage first = mojo.analyzeCoverage(new ExecutionDataStore());
+        assertTrue(mojo.analysisCacheFile.exists());
+
+        log.writtenData.clear();
+        IBundleCoverage second = mojo.analyzeCoverage(new ExecutionDataStore());
+
+        assertEquals(first.getInstructionCounter(), second.getInstructionCounter());
+        assertEquals(first.getLineCounter(), second.getLineCounter());
+        assertTrue(log.writtenData.stream().anyMatch(s -> s.matches("\\[debug] Analysis cache: \\d+ hits \\(\\d+ without execution data\\), 0 misses")));
+    }
+
+    @Test
+    public void testMojoWithoutCache() throws Exception {
+        mojo.useAnalysisCache = false;
+        mojo.analysisCacheFile = new File(targetDir, "analysis.cache");
+
+        mojo.analyzeCoverage(new ExecutionDataStore());
+
+        assertFalse(mojo.analysisCacheFile.exists());
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.svaningelgem;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class AnalysisPipelineTest extends BaseTestClass {
+    private MavenProject module;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        assertTrue("We need the test projects compiled files!", testProjectClasses.exists());
+
+        module = createProjectWithJacocoPlugin(testProjectJacocoExec.getAbsolutePath());
+        module.setArtifactId("module");
+        module.getBuild().setOutputDirectory(testProjectClasses.getAbsolutePath());
+
+        MavenProject lastModule = createProjectWithJacocoPlugin(new File(targetDir, "last.exec").getAbsolutePath());
+        lastModule.setArtifactId("last");
+
+        mojo.project = module;
+        mojo.mavenSession = createRealMavenSession(Arrays.asList(module, lastModule));
+        mojo.pipelineAnalysis = true;
+        mojo.ignoreFilesInBuildDirectory = false;
+    }
+
+    @Test
+    public void testDeferredModuleIsAnalyzedInTheBackground() throws Exception {
+        mojo.execute();
+
+        assertEquals(1, JacocoConsoleReporterMojo.analysisPipeline.getJobCount());
+        AnalysisCache results = JacocoConsoleReporterMojo.analysisPipeline.await(log);
+        assertTrue(results.size() > 0);
+        assertEquals(0, JacocoConsoleReporterMojo.analysisPipeline.getJobCount());
+    }
+
+    @Test
+    public void testDisabledPipelineSchedulesNothing() throws Exception {
+        mojo.pipelineAnalysis = false;
+        mojo.execute();
+
+        assertEquals(0, JacocoConsoleReporterMojo.analysisPipeline.getJobCount());
+    }
+
+    @Test
+    public void testFinalAnalysisReusesBackgroundResults() throws Exception {
+        mojo.execute();
+        ExecutionDataStore executionDataStore = mojo.loadExecutionData();
+        IBundleCoverage pipelined = mojo.analyzeCoverage(executionDataStore);
+        assertTrue(log.writtenData.stream().anyMatch(s -> s.startsWith("[debug] Background analysis results: ") && !s.endsWith(" 0 classes")));
+
+        mojo.pipelineAnalysis = false;
+        IBundleCoverage plain = mojo.analyzeCoverage(executionDataStore);
+
+        assertNotSame(pipelined, plain);
+        assertEquals(plain.getInstructionCounter(), pipelined.getInstructionCounter());
+        assertEquals(plain.getBranchCounter(), pipelined.getBranchCounter());
+        assertEquals(plain.getLineCounter(), pipelined.getLineCounter());
+        assertEquals(plain.getMethodCounter(), pipelined.getMethodCounter());
+        assertEquals(plain.getClassCounter(), pipelined.getClassCounter());
+    }
+
+    @Test
+    public void testOtherModulesDataInvalidatesBackgroundResults() throws Exception {
+        // The module analyzes its classes without execution data...
+        mojo.project.getBuild().getPlugins().clear();
+        mojo.project.getBuild().addPlugin(createPlugin("org.jacoco", "jacoco-maven-plugin", "<destFile>" + new File(targetDir, "missing.exec") + "</destFile>"));
+        mojo.execute();
+
+        // ... while the final analysis does have data for them
+        IBundleCoverage pipelined = mojo.analyzeCoverage(loadTestProjectData());
+        mojo.pipelineAnalysis = false;
+        IBundleCoverage plain = mojo.analyzeCoverage(loadTestProjectData());
+
+        assertTrue(plain.getInstructionCounter().getCoveredCount() > 0);
+        assertEquals(plain.getInstructionCounter(), pipelined.getInstructionCounter());
+        assertEquals(plain.getLineCounter(), pipelined.getLineCounter());
+    }
+
+    @Test
+    public void testNewSessionDropsPendingResults() throws IOException {
+        AnalysisPipeline pipeline = new AnalysisPipeline();
+        List<ClassFile> classFiles = mojo.collectClassFiles(Collections.singletonList(testProjectClasses));
+        MavenSession session = mojo.mavenSession;
+
+        pipeline.submit(session, Collections.singleton(testProjectJacocoExec), classFiles, log);
+        pipeline.submit(new Object(), Collections.emptySet(), Collections.emptyList(), log);
+
+        assertEquals(1, pipeline.getJobCount());
+        assertEquals(0, pipeline.await(log).size());
+    }
+
+    private ExecutionDataStore loadTestProjectData() throws IOException {
+        return new ExecutionDataMerger().loadExecutionData(Collections.singleton(testProjectJacocoExec));
+    }
+}
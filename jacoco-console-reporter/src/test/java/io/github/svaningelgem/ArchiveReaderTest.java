@@ -0,0 +1,154 @@
+package io.github.svaningelgem;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ArchiveReaderTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static byte[] zip(Map<String, byte[]> entries, boolean stored) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            out.setComment("archive comment");
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                if (stored) {
+                    CRC32 crc = new CRC32();
+                    crc.update(entry.getValue());
+                    zipEntry.setMethod(ZipEntry.STORED);
+                    zipEntry.setSize(entry.getValue().length);
+                    zipEntry.setCrc(crc.getValue());
+                }
+                out.putNextEntry(zipEntry);
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Map<String, byte[]> randomEntries(Random random, int count) {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("com/", new byte[0]);
+        for (int i = 0; i < count; i++) {
+            byte[] content = new byte[random.nextInt(3) == 0 ? 0 : random.nextInt(5000)];
+            for (int b = 0; b < content.length; b++) {
+                content[b] = (byte) random.nextInt(16);
+            }
+            entries.put("com/example/Entry" + i + ".class", content);
+        }
+        return entries;
+    }
+
+    private File write(byte[] content) throws IOException {
+        File file = temporaryFolder.newFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+        return file;
+    }
+
+    private static void assertEntries(Map<String, byte[]> expected, ArchiveReader reader) throws IOException {
+        List<ArchiveReader.Entry> entries = reader.getEntries();
+        // Directories are not listed
+        assertEquals(expected.size() - 1, entries.size());
+        for (ArchiveReader.Entry entry : entries) {
+            assertArrayEquals(entry.getName(), expected.get(entry.getName()), reader.readBytes(entry));
+        }
+    }
+
+    @Test
+    public void testDeflatedAndStoredEntries() throws IOException {
+        Map<String, byte[]> entries = randomEntries(new Random(1), 50);
+
+        assertEntries(entries, ArchiveReader.open(write(zip(entries, false)).toPath()));
+        assertEntries(entries, ArchiveReader.open(write(zip(entries, true)).toPath()));
+    }
+
+    @Test
+    public void testMemoryMappedArchive() throws IOException {
+        Map<String, byte[]> entries = randomEntries(new Random(2), 1_000);
+        File file = write(zip(entries, true));
+        assertTrue(file.length() >= ArchiveReader.MAP_THRESHOLD);
+
+        assertEntries(entries, ArchiveReader.open(file.toPath()));
+    }
+
+    @Test
+    public void testNestedArchives() throws IOException {
+        Map<String, byte[]> inner = randomEntries(new Random(3), 20);
+        for (boolean stored : new boolean[]{true, false}) {
+            Map<String, byte[]> outer = new LinkedHashMap<>();
+            outer.put("WEB-INF/", new byte[0]);
+            outer.put("WEB-INF/lib/inner.jar", zip(inner, false));
+
+            ArchiveReader reader = ArchiveReader.open(write(zip(outer, stored)).toPath());
+            assertEquals(1, reader.getEntries().size());
+            assertEntries(inner, reader.openNested(reader.getEntries().get(0)));
+        }
+    }
+
+    @Test
+    public void testZip64Archive() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("com/", new byte[0]);
+        for (int i = 0; i < 70_000; i++) {
+            entries.put("c/E" + i + ".class", new byte[]{(byte) i});
+        }
+
+        ArchiveReader reader = ArchiveReader.open(write(zip(entries, false)).toPath());
+        assertEquals(70_000, reader.getEntries().size());
+        ArchiveReader.Entry last = reader.getEntries().get(69_999);
+        assertArrayEquals(entries.get(last.getName()), reader.readBytes(last));
+    }
+
+    @Test
+    public void testInvalidArchives() throws IOException {
+        assertInvalid(new byte[0]);
+        assertInvalid("not a zip archive at all, but long enough".getBytes());
+
+        byte[] valid = zip(randomEntries(new Random(4), 3), false);
+        // Cutting within the trailing comment keeps a readable archive
+        for (int length = 1; length < valid.length - "archive comment".length(); length += 7) {
+            byte[] truncated = new byte[length];
+            System.arraycopy(valid, 0, truncated, 0, length);
+            assertInvalid(truncated);
+        }
+    }
+
+    private void assertInvalid(byte[] content) throws IOException {
+        File file = write(content);
+        try {
+            ArchiveReader reader = ArchiveReader.open(file.toPath());
+            for (ArchiveReader.Entry entry : reader.getEntries()) {
+                reader.readBytes(entry);
+            }
+            fail("Should reject " + content.length + " bytes");
+        } catch (IOException e) {
+            // Expected
+        } finally {
+            Files.delete(file.toPath());
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Build;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
 import org.apache.maven.plugin.Mojo;
 import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.descriptor.MojoDescriptor;
@@ -146,9 +147,13 @@ public class BaseTestClass {
         plugin.setArtifactId("jacoco-console-reporter");
         plugin.setVersion("1.0.0");
 
+        PluginDescriptor pluginDescriptor = new PluginDescriptor();
+        pluginDescriptor.setGroupId(plugin.getGroupId());
+        pluginDescriptor.setArtifactId(plugin.getArtifactId());
+
         MojoDescriptor mojoDescriptor = new MojoDescriptor();
         mojoDescriptor.setGoal("report");
-        mojoDescriptor.setPluginDescriptor(new PluginDescriptor());
+        mojoDescriptor.setPluginDescriptor(pluginDescriptor);
 
         MojoExecution mojoExecution = new MojoExecution(plugin, "report", "default-report");
         mojoExecution.setMojoDescriptor(mojoDescriptor);
@@ -158,9 +163,21 @@ public class BaseTestClass {
     @After
     public void tearDown() {
         JacocoConsoleReporterMojo.collectedClassesPaths.clear();
+        JacocoConsoleReporterMojo.collectedArchivePaths.clear();
         JacocoConsoleReporterMojo.collectedExecFilePaths.clear();
         JacocoConsoleReporterMojo.collectedExcludePatterns.clear();
         JacocoConsoleReporterMojo.collectedSonarExcludePatterns.clear();
+        JacocoConsoleReporterMojo.reactorProgress.clear();
+        JacocoConsoleReporterMojo.analysisPipeline.clear();
+    }
+
+    /**
+     * Collects this module's own classes. They are a multi-release layout: the versioned classes are left out, as the
+     * module's JaCoCo configuration does, so every class is analyzed once.
+     */
+    protected void addMainProjectClasses() {
+        JacocoConsoleReporterMojo.collectedClassesPaths.add(mainProjectClasses);
+        mojo.addExclusion("META-INF/versions/**/*");
     }
 
     /**
@@ -559,7 +576,7 @@ public class BaseTestClass {
     }
 
     /**
-     * Creates a real MavenProject with JaCoCo plugin configuration
+     * Creates a real MavenProject with JaCoCo plugin configuration, which runs the report goal
      */
     @Contract("_ -> new")
     protected @NotNull MavenProject createProjectWithJacocoPlugin(String destFile) throws IOException {
@@ -601,13 +618,29 @@ public class BaseTestClass {
 
         build.addPlugin(plugin);
 
-        MavenProject project = new MavenProject(model);
+        MavenProject project = addReporterPlugin(new MavenProject(model));
         File pomFile = new File(temporaryFolder.getRoot(), "pom.xml");
         pomFile.createNewFile();
         project.setFile(pomFile);
         return project;
     }
 
+    /**
+     * Binds the report goal of this plugin in the project's build
+     */
+    protected @NotNull MavenProject addReporterPlugin(@NotNull MavenProject project) {
+        PluginExecution execution = new PluginExecution();
+        execution.setId("report");
+        execution.addGoal("report");
+
+        Plugin plugin = new Plugin();
+        plugin.setGroupId("io.github.svaningelgem");
+        plugin.setArtifactId("jacoco-console-reporter");
+        plugin.addExecution(execution);
+        project.getBuild().addPlugin(plugin);
+        return project;
+    }
+
     /**
      * Creates a real MavenSession with multiple projects
      */
@@ -0,0 +1,146 @@
+package io.github.svaningelgem;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BuildDirectoryIndexTest extends BaseTestClass {
+    private final AtomicInteger reads = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        mojo.setupDefaultVariables();
+        mojo.useBuildDirectoryIndex = true;
+        mojo.buildDirectoryIndexFile = new File(targetDir, "jacoco-console-reporter/build-directory.index");
+        mojo.fileReader = new FileReader() {
+            @Override
+            public String readPackageName(Path path) throws IOException {
+                reads.incrementAndGet();
+                return super.readPackageName(path);
+            }
+        };
+    }
+
+    private List<String> runExclusion() {
+        JacocoConsoleReporterMojo.collectedExcludePatterns.clear();
+        reads.set(0);
+        mojo.addBuildDirExclusion();
+        return JacocoConsoleReporterMojo.collectedExcludePatterns.stream()
+                .map(Pattern::pattern)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testUnchangedFilesAreNotReadAgain() throws IOException {
+        createFile("generated-sources/a/First.java", "package com.example.a;");
+        createFile("generated-sources/b/Second.java", "// no package\nclass Second {}");
+
+        List<String> first = runExclusion();
+        assertEquals(2, reads.get());
+        assertTrue(mojo.buildDirectoryIndexFile.isFile());
+
+        List<String> second = runExclusion();
+        assertEquals(0, reads.get());
+        assertEquals(first, second);
+        assertEquals(1, second.size());
+        assertTrue(log.writtenData.contains("[debug] Build directory index: 2 hits, 0 misses"));
+    }
+
+    @Test
+    public void testChangedFilesAreReadAgain() throws IOException {
+        createFile("generated-sources/First.java", "package com.example.a;");
+        createFile("generated-sources/Second.java", "package com.example.b;");
+        runExclusion();
+
+        createFile("generated-sources/First.java", "package com.example.changed;");
+        List<String> patterns = runExclusion();
+
+        assertEquals(1, reads.get());
+        assertEquals(2, patterns.size());
+        assertTrue(patterns.get(0).contains("com/example/b/Second"));
+        assertTrue(patterns.get(1).contains("com/example/changed/First"));
+    }
+
+    @Test
+    public void testRemovedFilesAreDropped() throws IOException {
+        createFile("generated-sources/First.java", "package com.example.a;");
+        createFile("generated-sources/Second.java", "package com.example.b;");
+        runExclusion();
+
+        Files.delete(new File(targetDir, "generated-sources/Second.java").toPath());
+        runExclusion();
+
+        assertEquals(1, BuildDirectoryIndex.load(mojo.buildDirectoryIndexFile, log).size());
+    }
+
+    @Test
+    public void testUnreadableIndexIsIgnored() throws IOException {
+        createFile("generated-sources/First.java", "package com.example.a;");
+        createFile("jacoco-console-reporter/build-directory.index", "garbage");
+
+        List<String> patterns = runExclusion();
+
+        assertEquals(1, reads.get());
+        assertEquals(1, patterns.size());
+        assertTrue(log.writtenData.stream().anyMatch(s -> s.startsWith("[debug] Ignoring build directory index from another version: ")));
+    }
+
+    @Test
+    public void testFailedReadsAreNotIndexed() throws IOException {
+        createFile("generated-sources/First.java", "package com.example.a;");
+        mojo.fileReader = new FileReader() {
+            @Override
+            public String readPackageName(Path path) throws IOException {
+                throw new IOException("boom");
+            }
+        };
+        runExclusion();
+
+        assertEquals(0, BuildDirectoryIndex.load(mojo.buildDirectoryIndexFile, log).size());
+    }
+
+    @Test
+    public void testIndexCanBeDisabled() throws IOException {
+        mojo.useBuildDirectoryIndex = false;
+        createFile("generated-sources/First.java", "package com.example.a;");
+
+        runExclusion();
+        runExclusion();
+
+        assertEquals(1, reads.get());
+        assertFalse(mojo.buildDirectoryIndexFile.exists());
+    }
+
+    @Test
+    public void testEntriesRoundTrip() throws IOException {
+        BuildDirectoryIndex index = new BuildDirectoryIndex();
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            paths.add(new File(targetDir, "File" + i + ".java").toPath());
+            index.put(paths.get(i), i, 1000L + i, i == 1 ? null : "com.example.p" + i);
+        }
+        index.save(mojo.buildDirectoryIndexFile);
+
+        BuildDirectoryIndex loaded = BuildDirectoryIndex.load(mojo.buildDirectoryIndexFile, log);
+        assertEquals("com.example.p0", loaded.get(paths.get(0), 0, 1000L).packageName);
+        assertEquals(null, loaded.get(paths.get(1), 1, 1001L).packageName);
+        assertEquals(null, loaded.get(paths.get(2), 2, 9999L));
+        assertEquals(2, loaded.getHits());
+        assertEquals(1, loaded.getMisses());
+    }
+}
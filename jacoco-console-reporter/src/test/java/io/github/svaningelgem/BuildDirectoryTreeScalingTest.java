@@ -0,0 +1,89 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.core.analysis.ISourceFileCoverage;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.PackageCoverageImpl;
+import org.jacoco.core.internal.analysis.SourceFileCoverageImpl;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Makes sure building the tree scales linearly with the amount of classes in a package.
+ * Instead of timing the run, which is flaky on shared CI machines, it counts how often the
+ * source file of a class is looked up: a quadratic scan would do this files × classes times.
+ */
+public class BuildDirectoryTreeScalingTest extends BaseTestClass {
+    private final AtomicLong sourceFileLookups = new AtomicLong();
+
+    private @NotNull IPackageCoverage createPackage(int sourceFileCount) {
+        List<IClassCoverage> classes = new ArrayList<>();
+        List<ISourceFileCoverage> sourceFiles = new ArrayList<>();
+        for (int i = 0; i < sourceFileCount; i++) {
+            String sourceFileName = "Generated" + i + ".java";
+            classes.add(createClass("com/example/generated/Generated" + i, sourceFileName));
+            classes.add(createClass("com/example/generated/Generated" + i + "$Inner", sourceFileName));
+            sourceFiles.add(new SourceFileCoverageImpl(sourceFileName, "com/example/generated"));
+        }
+        return new PackageCoverageImpl("com/example/generated", classes, sourceFiles);
+    }
+
+    private @NotNull IClassCoverage createClass(String name, String sourceFileName) {
+        ClassCoverageImpl coverage = new ClassCoverageImpl(name, name.hashCode(), false) {
+            @Override
+            public String getSourceFileName() {
+                sourceFileLookups.incrementAndGet();
+                return super.getSourceFileName();
+            }
+        };
+        coverage.setSourceFileName(sourceFileName);
+        return coverage;
+    }
+
+    private long countLookups(int sourceFileCount) {
+        IPackageCoverage packageCoverage = createPackage(sourceFileCount);
+        sourceFileLookups.set(0);
+
+        DirectoryNode root = new DirectoryNode("");
+        mojo.buildDirectoryTreeAddNode(root, packageCoverage);
+
+        DirectoryNode generated = root.getSubdirectories().get("com").getSubdirectories().get("example").getSubdirectories().get("generated");
+        assertEquals(sourceFileCount, generated.getSourceFiles().size());
+        generated.getSourceFiles().forEach(file -> assertEquals(2, file.getMetrics().getTotalClasses()));
+
+        return sourceFileLookups.get();
+    }
+
+    @Test
+    public void testSourceFileLookupsGrowLinearly() {
+        long small = countLookups(500);
+        long large = countLookups(5000);
+
+        assertEquals(2 * 500, small);
+        assertEquals(2 * 5000, large);
+    }
+
+    @Test
+    public void testIndexGroupsClassesBySourceFile() {
+        IPackageCoverage packageCoverage = createPackage(3);
+
+        assertEquals(3, JacocoConsoleReporterMojo.indexClassesBySourceFile(packageCoverage).size());
+        assertEquals(2, JacocoConsoleReporterMojo.indexClassesBySourceFile(packageCoverage).get("Generated1.java").size());
+    }
+
+    @Test
+    public void testClassesWithoutSourceFileAreSkipped() {
+        List<IClassCoverage> classes = new ArrayList<>();
+        classes.add(new ClassCoverageImpl("com/example/NoSource", 1, false));
+        IPackageCoverage packageCoverage = new PackageCoverageImpl("com/example", classes, new ArrayList<>());
+
+        assertEquals(0, JacocoConsoleReporterMojo.indexClassesBySourceFile(packageCoverage).size());
+    }
+}
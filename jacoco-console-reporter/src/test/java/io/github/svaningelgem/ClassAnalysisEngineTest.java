@@ -0,0 +1,95 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClassAnalysisEngineTest extends BaseTestClass {
+    private Map<String, String> analyze(int threads) throws Exception {
+        JacocoConsoleReporterMojo.collectedClassesPaths.clear();
+        addMainProjectClasses();
+        List<ClassFile> classFiles = mojo.collectClassFiles();
+
+        CoverageBuilder builder = new CoverageBuilder();
+        new ClassAnalysisEngine(new ExecutionDataStore(), threads, log).analyze(classFiles, builder);
+
+        Map<String, String> summary = new TreeMap<>();
+        for (IClassCoverage coverage : builder.getClasses()) {
+            summary.put(coverage.getName(), coverage.getInstructionCounter() + " " + coverage.getLineCounter() + " " + coverage.getMethodCounter());
+        }
+        return summary;
+    }
+
+    @Test
+    public void testParallelAnalysisMatchesSequentialAnalysis() throws Exception {
+        assertTrue("We need the main projects compiled files!", mainProjectClasses.exists());
+
+        Map<String, String> sequential = analyze(1);
+        Map<String, String> parallel = analyze(4);
+
+        assertFalse(sequential.isEmpty());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testChunksCoverAllClassFilesInOrder() throws Exception {
+        List<ClassFile> classFiles = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            classFiles.add(new ClassFile(new File(classesDir, "C" + i + ".class").toPath()));
+        }
+
+        ClassAnalysisEngine engine = new ClassAnalysisEngine(new ExecutionDataStore(), 2, log);
+        List<ClassFile> seen = new ArrayList<>();
+        for (Callable<List<ClassAnalysisEngine.AnalyzedClass>> task : engine.createTasks(classFiles)) {
+            task.call().forEach(analyzed -> seen.add(analyzed.classFile));
+        }
+
+        assertEquals(classFiles, seen);
+    }
+
+    @Test
+    public void testInvalidClassFileIsLoggedAndSkipped() throws Exception {
+        File invalidClass = new File(classesDir, "Invalid.class");
+        Files.write(invalidClass.toPath(), "not a valid class file".getBytes());
+
+        List<ClassFile> classFiles = new ArrayList<>();
+        classFiles.add(new ClassFile(invalidClass.toPath()));
+
+        CoverageBuilder builder = new CoverageBuilder();
+        new ClassAnalysisEngine(new ExecutionDataStore(), 2, log).analyze(classFiles, builder);
+
+        IBundleCoverage bundle = builder.getBundle("Project");
+        assertTrue(bundle.getPackages().isEmpty());
+        assertTrue(log.writtenData.stream().anyMatch(s -> s.startsWith("[debug] Error analyzing class file: " + invalidClass)));
+    }
+
+    @Test
+    public void testAnalyzeCoverageUsesConfiguredThreads() throws Exception {
+        assertTrue("We need the main projects compiled files!", mainProjectClasses.exists());
+
+        addMainProjectClasses();
+
+        mojo.analysisThreads = 1;
+        IBundleCoverage sequential = mojo.analyzeCoverage(new ExecutionDataStore());
+        mojo.analysisThreads = 0;
+        IBundleCoverage parallel = mojo.analyzeCoverage(new ExecutionDataStore());
+
+        assertEquals(sequential.getClassCounter(), parallel.getClassCounter());
+        assertEquals(sequential.getInstructionCounter(), parallel.getInstructionCounter());
+        assertEquals(sequential.getLineCounter(), parallel.getLineCounter());
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClassFileExclusionTest extends BaseTestClass {
+    private void createClassFile(String relativePath) throws IOException {
+        File file = new File(classesDir, relativePath);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), "not a valid class file".getBytes());
+    }
+
+    private List<String> collectRelativePaths() throws IOException {
+        JacocoConsoleReporterMojo.collectedClassesPaths.add(classesDir);
+        return mojo.collectClassFiles().stream()
+                .map(classFile -> classesDir.toPath().relativize(classFile.getPath()).toString().replace(File.separatorChar, '/'))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testExcludedClassFilesAreNotCollected() throws Exception {
+        createClassFile("com/example/generated/Proto.class");
+        createClassFile("com/example/generated/Proto$Builder.class");
+        createClassFile("com/example/Kept.class");
+        createClassFile("com/example/Kept$1.class");
+        mojo.addExclusion("com/example/generated/**/*");
+
+        List<String> collected = collectRelativePaths();
+
+        assertEquals(2, collected.size());
+        assertTrue(collected.contains("com/example/Kept.class"));
+        assertTrue(collected.contains("com/example/Kept$1.class"));
+        assertTrue(log.writtenData.contains("[debug] Skipping excluded class file: com/example/generated/Proto$Builder"));
+    }
+
+    @Test
+    public void testNestedClassesFollowTheirOuterClass() throws Exception {
+        createClassFile("com/example/Outer.class");
+        createClassFile("com/example/Outer$Inner.class");
+        createClassFile("com/example/Outer$Inner$Deeper.class");
+        createClassFile("com/example/Other.class");
+        mojo.addExclusion("com/example/Outer");
+
+        assertEquals(1, collectRelativePaths().size());
+    }
+
+    @Test
+    public void testSonarExclusionsApplyToClassFiles() throws Exception {
+        createClassFile("com/example/jooq/Tables.class");
+        createClassFile("com/example/Service.class");
+        mojo.project.getProperties().put("sonar.exclusions", "src/main/java/**/jooq/**");
+        mojo.addSonarExclusions();
+
+        List<String> collected = collectRelativePaths();
+
+        assertEquals(1, collected.size());
+        assertEquals("com/example/Service.class", collected.get(0));
+    }
+
+    @Test
+    public void testExcludedClassFilesAreNeverRead() throws Exception {
+        createClassFile("com/example/generated/Broken.class");
+        mojo.addExclusion("com/example/generated/**/*");
+        JacocoConsoleReporterMojo.collectedClassesPaths.add(classesDir);
+
+        mojo.analyzeCoverage(new ExecutionDataStore());
+
+        assertFalse(log.writtenData.stream().anyMatch(s -> s.startsWith("[debug] Error analyzing class file")));
+    }
+
+    @Test
+    public void testEachOuterClassIsCheckedOnce() {
+        mojo.addExclusion("com/example/Outer");
+        Map<String, Boolean> checked = new HashMap<>();
+
+        assertTrue(mojo.isClassFileExcluded(Paths.get("com", "example", "Outer$A.class"), checked));
+        assertTrue(mojo.isClassFileExcluded(Paths.get("com", "example", "Outer$B.class"), checked));
+        assertFalse(mojo.isClassFileExcluded(Paths.get("$Proxy.class"), checked));
+
+        assertEquals(2, checked.size());
+        assertEquals(1, log.writtenData.stream().filter(s -> s.startsWith("[debug] Excluded source file")).count());
+    }
+
+    @Test
+    public void testReportMatchesFilteringAfterAnalysis() throws Exception {
+        assertTrue("We need the main projects compiled files!", mainProjectClasses.exists());
+        addMainProjectClasses();
+        mojo.addExclusion("io/github/svaningelgem/ParallelTasks");
+
+        IBundleCoverage bundle = mojo.analyzeCoverage(new ExecutionDataStore());
+
+        for (IPackageCoverage packageCoverage : bundle.getPackages()) {
+            for (IClassCoverage classCoverage : packageCoverage.getClasses()) {
+                assertFalse(classCoverage.getName().startsWith("io/github/svaningelgem/ParallelTasks"));
+            }
+        }
+        assertTrue(bundle.getClassCounter().getTotalCount() > 0);
+    }
+}
@@ -0,0 +1,195 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.SourceNodeImpl;
+import org.jacoco.core.internal.instr.InstrSupport;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CoverageTreeBuilderTest extends BaseTestClass {
+    private void assertSameTree() throws Exception {
+        mojo.showFiles = true;
+        mojo.showMissingLines = true;
+        ExecutionDataStore store = mojo.loadExecutionData();
+        List<ClassFile> classFiles = mojo.collectClassFiles();
+
+        CoverageTreeBuilder treeBuilder = new CoverageTreeBuilder(mojo::isSourceFileExcluded, true);
+        mojo.analyzeCoverage(store, classFiles, treeBuilder);
+        DirectoryNode expected = mojo.buildDirectoryTree(mojo.analyzeCoverage(store, classFiles));
+
+        assertTrue(treeBuilder.isExact());
+        assertTrue(expected.getMetrics().getTotalLines() > 0);
+        assertEquals(expected.getMetrics(), treeBuilder.getMetrics());
+        assertEquals(printed(expected), printed(treeBuilder.build()));
+    }
+
+    private List<String> printed(DirectoryNode root) {
+        log.writtenData.clear();
+        mojo.printTree(root);
+        return new ArrayList<>(log.writtenData);
+    }
+
+    @Test
+    public void testMatchesTheTreeOfTheBundle() throws Exception {
+        assertTrue("We need the test project's compiled files!", testProjectClasses.exists());
+
+        JacocoConsoleReporterMojo.collectedClassesPaths.add(testProjectClasses);
+        addMainProjectClasses();
+        JacocoConsoleReporterMojo.collectedExecFilePaths.add(testProjectJacocoExec);
+
+        assertSameTree();
+    }
+
+    @Test
+    public void testExcludedSourceFilesAreLeftOut() throws Exception {
+        addMainProjectClasses();
+        mojo.addExclusion("io/github/svaningelgem/JacocoConsoleReporterMojo*");
+
+        assertSameTree();
+    }
+
+    @Test
+    public void testDuplicateClassesAreCountedOnce() throws Exception {
+        List<ClassFile> classFiles = new ArrayList<>();
+        addMainProjectClasses();
+        classFiles.addAll(mojo.collectClassFiles());
+        classFiles.addAll(mojo.collectClassFiles());
+
+        CoverageTreeBuilder once = new CoverageTreeBuilder(mojo::isSourceFileExcluded, true);
+        mojo.analyzeCoverage(new ExecutionDataStore(), mojo.collectClassFiles(), once);
+        CoverageTreeBuilder twice = new CoverageTreeBuilder(mojo::isSourceFileExcluded, true);
+        mojo.analyzeCoverage(new ExecutionDataStore(), classFiles, twice);
+
+        assertTrue(twice.isExact());
+        assertEquals(once.getMetrics(), twice.getMetrics());
+    }
+
+    @Test
+    public void testConflictingClassesAreNotExact() {
+        CoverageTreeBuilder summary = new CoverageTreeBuilder((packageName, fileName) -> false, false);
+        summary.visitCoverage(new ClassCoverageImpl("com/example/A", 1, false));
+        assertTrue(summary.isExact());
+
+        summary.visitCoverage(new ClassCoverageImpl("com/example/A", 2, false));
+        assertFalse(summary.isExact());
+    }
+
+    @Test
+    public void testInlineFragmentsAreNotExact() {
+        ClassCoverageImpl coverage = new ClassCoverageImpl("com/example/A", 1, false);
+        coverage.setFragments(Collections.singletonList(new SourceNodeImpl(ICoverageNode.ElementType.CLASS, "com/example/B")));
+
+        CoverageTreeBuilder summary = new CoverageTreeBuilder((packageName, fileName) -> false, false);
+        summary.visitCoverage(coverage);
+        assertFalse(summary.isExact());
+    }
+
+    @Test
+    public void testGenerateReportsStreamsTheSummaryWithoutTree() throws Exception {
+        JacocoConsoleReporterMojo.collectedClassesPaths.add(testProjectClasses);
+        JacocoConsoleReporterMojo.collectedExecFilePaths.add(testProjectJacocoExec);
+
+        mojo.showTree = false;
+        mojo.generateReports();
+        List<String> streamed = new ArrayList<>(log.writtenData);
+
+        log.writtenData.clear();
+        mojo.printSummary(mojo.buildDirectoryTree(mojo.analyzeCoverage(mojo.loadExecutionData())));
+
+        assertTrue(streamed.contains("[debug] Analyzing coverage for the summary"));
+        assertFalse(streamed.contains("[debug] Building internal tree model"));
+        assertTrue(streamed.containsAll(log.writtenData));
+    }
+
+    @Test
+    public void testGenerateReportsStreamsTheTree() throws Exception {
+        JacocoConsoleReporterMojo.collectedClassesPaths.add(testProjectClasses);
+        JacocoConsoleReporterMojo.collectedExecFilePaths.add(testProjectJacocoExec);
+        mojo.showFiles = true;
+        mojo.showMissingLines = true;
+
+        mojo.generateReports();
+        List<String> streamed = new ArrayList<>(log.writtenData);
+
+        log.writtenData.clear();
+        mojo.printCoverageReport(mojo.buildDirectoryTree(mojo.analyzeCoverage(mojo.loadExecutionData())));
+
+        assertTrue(streamed.stream().anyMatch(s -> s.contains("Missing: ")));
+        assertTrue(streamed.containsAll(log.writtenData));
+    }
+
+    @Test
+    public void testClassFilesWithoutNameUseTheBundleForTheXmlReport() throws Exception {
+        mojo.writeXmlReport = true;
+        List<ClassFile> classFiles = Collections.singletonList(new ClassFile(testProjectClasses.toPath()));
+
+        assertFalse(mojo.reportWithoutBundle(new ExecutionDataStore(), classFiles));
+        assertTrue(log.writtenData.isEmpty());
+    }
+
+    private void copyClasses(File classes, String... classNames) throws IOException {
+        File packageDirectory = new File(classes, "io/github/svaningelgem");
+        Files.createDirectories(packageDirectory.toPath());
+        for (String className : classNames) {
+            Files.copy(new File(mainProjectClasses, "io/github/svaningelgem/" + className + ".class").toPath(), new File(packageDirectory, className + ".class").toPath());
+        }
+    }
+
+    /**
+     * A second, different class of the same name makes the streamed tree inexact: the streamed analysis stops there,
+     * and the full analysis continues with the classes that were analyzed so far
+     */
+    @Test
+    public void testInexactTreeStopsTheStreamedAnalysis() throws Exception {
+        File first = temporaryFolder.newFolder("a");
+        copyClasses(first, "CoverageMetrics", "DirectoryNode");
+
+        // The same class with an extra field
+        File second = temporaryFolder.newFolder("b");
+        copyClasses(second, "CoverageMetrics");
+        File changed = new File(second, "io/github/svaningelgem/CoverageMetrics.class");
+        ClassWriter writer = new ClassWriter(0);
+        new ClassReader(Files.readAllBytes(changed.toPath())).accept(new ClassVisitor(InstrSupport.ASM_API_VERSION, writer) {
+            @Override
+            public void visitEnd() {
+                super.visitField(Opcodes.ACC_PRIVATE, "extra", "I", null, null).visitEnd();
+                super.visitEnd();
+            }
+        }, 0);
+        Files.write(changed.toPath(), writer.toByteArray());
+
+        File third = temporaryFolder.newFolder("c");
+        copyClasses(third, "SourceFileNode", "CoverageTreeBuilder", "ReactorProgress");
+
+        JacocoConsoleReporterMojo.collectedClassesPaths.addAll(Arrays.asList(first, second, third));
+        mojo.useAnalysisCache = true;
+        mojo.analysisCacheFile = new File(temporaryFolder.getRoot(), "analysis.cache");
+        // Chunks of two class files, analyzed one after the other
+        mojo.analysisThreads = 1;
+        mojo.generateReports();
+
+        assertTrue(log.writtenData.contains("[debug] Classes affect each other's coverage, building the full report"));
+        // Every class file is analyzed once: the stopped pass got up to the chunk of the conflicting class, and
+        // those four are restored in the full analysis
+        assertEquals(Collections.singletonList("[debug] Analysis cache: 4 hits (0 without execution data), 6 misses"),
+                log.writtenData.stream().filter(line -> line.startsWith("[debug] Analysis cache: ")).collect(Collectors.toList()));
+    }
+}
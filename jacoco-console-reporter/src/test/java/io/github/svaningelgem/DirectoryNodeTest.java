@@ -3,6 +3,7 @@ package io.github.svaningelgem;
 import org.junit.Test;
 
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -116,4 +117,53 @@ public class DirectoryNodeTest extends BaseTestClass {
                 log.writtenData.stream().anyMatch(s -> s.contains("<root>")));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testMetricsAreAggregatedOnce() {
+        AtomicInteger metricsCalls = new AtomicInteger();
+        DirectoryNode root = new DirectoryNode("");
+        for (String name : new String[]{"a", "b", "c"}) {
+            DirectoryNode dir = root.getSubdirectories().computeIfAbsent(name, DirectoryNode::new);
+            dir.getSourceFiles().add(new SourceFileNode(name + ".java", new CoverageMetrics(1, 1, 2, 1, 10, 5, 4, 2), null) {
+                @Override
+                public CoverageMetrics getMetrics() {
+                    metricsCalls.incrementAndGet();
+                    return super.getMetrics();
+                }
+            });
+        }
+
+        CoverageMetrics total = root.aggregate();
+        assertEquals(3, metricsCalls.get());
+        assertEquals(30, total.getTotalLines());
+
+        root.printTree(log, "", Defaults.getInstance().lineFormat, "", false);
+        assertEquals(total, root.getMetrics());
+        assertEquals(3, metricsCalls.get());
+    }
+
+    @Test
+    public void testMetricsCantBeChangedThroughTheNode() {
+        DirectoryNode root = new DirectoryNode("");
+        createTree(root, 2, new CoverageMetrics(1, 1, 1, 1, 10, 10, 0, 0), "a");
+
+        root.getMetrics().add(new CoverageMetrics(1, 1, 1, 1, 10, 10, 0, 0));
+        root.aggregate().add(new CoverageMetrics(1, 1, 1, 1, 10, 10, 0, 0));
+        assertEquals(20, root.getMetrics().getTotalLines());
+        assertEquals(20, root.getSubdirectories().values().stream().mapToInt(dir -> dir.getMetrics().getTotalLines()).sum());
+    }
+
+    @Test
+    public void testAggregateRefreshesAfterChanges() {
+        DirectoryNode root = new DirectoryNode("");
+        createTree(root, 2, new CoverageMetrics(1, 1, 1, 1, 10, 10, 0, 0), "a");
+        assertEquals(20, root.getMetrics().getTotalLines());
+
+        DirectoryNode empty = root.getSubdirectories().computeIfAbsent("empty", DirectoryNode::new);
+        createTree(root, 1, new CoverageMetrics(1, 1, 1, 1, 10, 10, 0, 0), "b");
+        root.aggregate();
+
+        assertEquals(30, root.getMetrics().getTotalLines());
+        assertTrue(root.getSubdirectories().get("b").shouldInclude());
+        assertFalse(empty.shouldInclude());
+    }
+}
@@ -9,7 +9,6 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
@@ -162,7 +161,7 @@ public class ExclusionIntegrationTest extends BaseTestClass {
 
         mojo.fileReader = new FileReader() {
             @Override
-            public String readAllBytes(Path path, Charset cs) throws IOException {
+            public String readPackageName(Path path) throws IOException {
                 throw new IOException("boom");
             }
         };
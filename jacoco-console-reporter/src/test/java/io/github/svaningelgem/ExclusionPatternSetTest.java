@@ -0,0 +1,131 @@
+package io.github.svaningelgem;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExclusionPatternSetTest extends BaseTestClass {
+    private static final String[] SEGMENTS = {"com", "example", "generated", "Foo", "Bar$Inner", "a.b", "x*", "**", "*Impl", "?"};
+
+    private Pattern convert(String jacocoPattern) {
+        return mojo.convertExclusionToPattern(jacocoPattern);
+    }
+
+    @Test
+    public void testClassify() {
+        assertArrayEquals(new String[]{"com/example/Foo", ""}, ExclusionPatternSet.classify(convert("com/example/Foo.class")));
+        assertArrayEquals(new String[]{"com/example/Foo.Bar", ""}, ExclusionPatternSet.classify(convert("com/example/Foo.Bar")));
+        assertArrayEquals(new String[]{"com/example/", "(?:[^/]*/)*[^/]*"}, ExclusionPatternSet.classify(convert("com/example/**/*")));
+        assertArrayEquals(new String[]{"", "(?:[^/]*/)*[^/]*"}, ExclusionPatternSet.classify(convert("**/*")));
+
+        assertNull(ExclusionPatternSet.classify(convert("com/example/*Impl")));
+        assertNull(ExclusionPatternSet.classify(convert("com/**/Foo")));
+        assertNull(ExclusionPatternSet.classify(convert("com/example/**")));
+        assertNull(ExclusionPatternSet.classify(Pattern.compile("com/example/Foo")));
+        assertNull(ExclusionPatternSet.classify(Pattern.compile("^com/example/Foo$", Pattern.CASE_INSENSITIVE)));
+    }
+
+    @Test
+    public void testMatchesAllThreeKinds() {
+        ExclusionPatternSet set = new ExclusionPatternSet();
+        set.add(convert("com/example/Exact"));
+        set.add(convert("com/example/generated/**/*"));
+        set.add(convert("**/*Impl"));
+
+        assertTrue(set.matches("com/example/Exact"));
+        assertFalse(set.matches("com/example/Exact$Inner"));
+        assertTrue(set.matches("com/example/generated/deep/Proto"));
+        assertTrue(set.matches("com/example/generated/Proto"));
+        assertFalse(set.matches("com/example/generatedProto"));
+        assertTrue(set.matches("org/service/ServiceImpl"));
+        assertFalse(set.matches("org/service/Service"));
+    }
+
+    @Test
+    public void testMatchesLikeTheIndividualPatterns() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            ExclusionPatternSet set = new ExclusionPatternSet();
+            List<Pattern> patterns = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(8); i++) {
+                Pattern pattern = convert(randomPath(random));
+                patterns.add(pattern);
+                set.add(pattern);
+            }
+
+            for (int i = 0; i < 200; i++) {
+                String name = randomPath(random).replace("*", "").replace("?", "q");
+                boolean expected = patterns.stream().anyMatch(p -> p.matcher(name).matches());
+                assertEquals(patterns + " on " + name, expected, set.matches(name));
+            }
+        }
+    }
+
+    private static String randomPath(Random random) {
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < 1 + random.nextInt(4); i++) {
+            if (path.length() > 0) {
+                path.append('/');
+            }
+            path.append(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+        }
+        return path.toString();
+    }
+
+    @Test
+    public void testCustomPatternsAreKept() {
+        ExclusionPatternSet set = new ExclusionPatternSet();
+        set.add(Pattern.compile("^com/EXAMPLE/foo$", Pattern.CASE_INSENSITIVE));
+        set.add(Pattern.compile("^(a)/\\1$"));
+        set.add(Pattern.compile("^org/(?:x|y)/Z$"));
+
+        assertTrue(set.matches("com/example/Foo"));
+        assertTrue(set.matches("a/a"));
+        assertFalse(set.matches("a/b"));
+        assertTrue(set.matches("org/y/Z"));
+    }
+
+    @Test
+    public void testChangesRebuildTheLookup() {
+        ExclusionPatternSet set = new ExclusionPatternSet();
+        Pattern pattern = convert("com/example/Foo");
+        set.add(pattern);
+        assertTrue(set.matches("com/example/Foo"));
+
+        set.remove(pattern);
+        assertFalse(set.matches("com/example/Foo"));
+
+        set.add(pattern);
+        assertTrue(set.matches("com/example/Foo"));
+        set.clear();
+        assertFalse(set.matches("com/example/Foo"));
+        assertTrue(set.isEmpty());
+
+        set.add(pattern);
+        Iterator<Pattern> iterator = set.iterator();
+        iterator.next();
+        iterator.remove();
+        assertFalse(set.matches("com/example/Foo"));
+    }
+
+    @Test
+    public void testManyExactPatterns() {
+        for (int i = 0; i < 5000; i++) {
+            mojo.addExclusion("com/example/generated/Generated" + i + ".class");
+        }
+
+        assertEquals(5000, JacocoConsoleReporterMojo.collectedExcludePatterns.size());
+        assertTrue(mojo.isExcluded("com/example/generated/Generated4999"));
+        assertFalse(mojo.isExcluded("com/example/generated/Generated5000"));
+    }
+}
@@ -0,0 +1,187 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IncompatibleExecDataVersionException;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.internal.data.CRC64;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExecFileReaderTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final File testProjectJacocoExec = new File("../test-project/target/jacoco.exec").getAbsoluteFile();
+
+    private File writeExecFile(int classes, boolean append, Random random) throws IOException {
+        File file = temporaryFolder.newFile();
+        for (int dump = 0; dump < (append ? 3 : 1); dump++) {
+            try (OutputStream out = new FileOutputStream(file, true)) {
+                ExecutionDataWriter writer = new ExecutionDataWriter(out);
+                writer.visitSessionInfo(new SessionInfo("host-" + dump + "-é中", random.nextLong(), random.nextLong()));
+                for (int i = 0; i < classes; i++) {
+                    String name = i % 7 == 0 ? "com/example/ünicode/Class\u0000" + i : "com/example/Class" + i;
+                    boolean[] probes = new boolean[random.nextInt(300)];
+                    for (int p = 0; p < probes.length; p++) {
+                        probes[p] = random.nextBoolean();
+                    }
+                    writer.visitClassExecution(new ExecutionData(CRC64.classId(name.getBytes()) + dump, name, probes));
+                }
+            }
+        }
+        return file;
+    }
+
+    private void assertSameAsJacoco(File file) throws IOException {
+        ExecutionDataStore expected = new ExecutionDataStore();
+        SessionInfoStore expectedSessions = new SessionInfoStore();
+        try (InputStream in = new FileInputStream(file)) {
+            ExecutionDataReader reader = new ExecutionDataReader(in);
+            reader.setExecutionDataVisitor(expected);
+            reader.setSessionInfoVisitor(expectedSessions);
+            reader.read();
+        }
+
+        ExecutionDataStore actual = new ExecutionDataStore();
+        SessionInfoStore actualSessions = new SessionInfoStore();
+        ExecFileReader.read(file, actual, actualSessions);
+
+        assertEquals(expected.getContents().size(), actual.getContents().size());
+        for (ExecutionData data : expected.getContents()) {
+            ExecutionData read = actual.get(data.getId());
+            assertEquals(data.getName(), read.getName());
+            assertArrayEquals(data.getName(), data.getProbes(), read.getProbes());
+        }
+
+        assertEquals(expectedSessions.getInfos().size(), actualSessions.getInfos().size());
+        for (int i = 0; i < expectedSessions.getInfos().size(); i++) {
+            SessionInfo expectedInfo = expectedSessions.getInfos().get(i);
+            SessionInfo actualInfo = actualSessions.getInfos().get(i);
+            assertEquals(expectedInfo.getId(), actualInfo.getId());
+            assertEquals(expectedInfo.getStartTimeStamp(), actualInfo.getStartTimeStamp());
+            assertEquals(expectedInfo.getDumpTimeStamp(), actualInfo.getDumpTimeStamp());
+        }
+    }
+
+    @Test
+    public void testReadsLikeJacoco() throws IOException {
+        assertSameAsJacoco(writeExecFile(50, false, new Random(1)));
+        assertSameAsJacoco(writeExecFile(50, true, new Random(2)));
+    }
+
+    @Test
+    public void testMemoryMappedFile() throws IOException {
+        File file = writeExecFile(40_000, false, new Random(3));
+        assertTrue(file.length() >= ExecFileReader.MAP_THRESHOLD);
+
+        assertSameAsJacoco(file);
+    }
+
+    @Test
+    public void testRealExecFile() throws IOException {
+        assertTrue("We need the test projects exec file!", testProjectJacocoExec.exists());
+
+        assertSameAsJacoco(testProjectJacocoExec);
+    }
+
+    @Test
+    public void testClassFilterSkipsProbes() throws IOException {
+        File file = writeExecFile(50, true, new Random(5));
+        ExecutionDataStore all = new ExecutionDataStore();
+        ExecFileReader.read(file, all, new SessionInfoStore());
+
+        ExecutionDataStore filtered = new ExecutionDataStore();
+        SessionInfoStore sessions = new SessionInfoStore();
+        ExecFileReader.read(file, filtered, sessions, name -> name.endsWith("1"));
+
+        assertEquals(3, sessions.getInfos().size());
+        assertEquals(all.getContents().stream().filter(data -> data.getName().endsWith("1")).count(), filtered.getContents().size());
+        for (ExecutionData data : filtered.getContents()) {
+            assertArrayEquals(all.get(data.getId()).getProbes(), data.getProbes());
+        }
+    }
+
+    @Test
+    public void testCountsFilteredEntries() throws IOException {
+        File file = writeExecFile(50, true, new Random(5));
+        ExecutionDataStore filtered = new ExecutionDataStore();
+
+        int count = ExecFileReader.read(file, filtered, new SessionInfoStore(), name -> name.endsWith("1"), 0);
+
+        assertTrue(count > filtered.getContents().size());
+        assertEquals(ExecFileReader.read(file, new ExecutionDataStore(), new SessionInfoStore(), null, 0), count);
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        ExecutionDataStore store = new ExecutionDataStore();
+        ExecFileReader.read(temporaryFolder.newFile(), store, new SessionInfoStore());
+
+        assertTrue(store.getContents().isEmpty());
+    }
+
+    @Test
+    public void testTruncatedFiles() throws IOException {
+        byte[] content = Files.readAllBytes(writeExecFile(3, false, new Random(4)).toPath());
+        for (int length = 1; length < content.length; length++) {
+            File truncated = temporaryFolder.newFile();
+            Files.write(truncated.toPath(), Arrays.copyOf(content, length));
+            try {
+                ExecFileReader.read(truncated, new ExecutionDataStore(), new SessionInfoStore());
+                // Cutting right behind a block is a valid file
+            } catch (EOFException e) {
+                // Expected for all other cuts
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidFiles() throws IOException {
+        assertFails(new byte[]{0x11}, "Invalid execution data file.");
+        assertFails(new byte[]{0x01, 0x12, 0x34, 0x10, 0x07}, "Invalid execution data file.");
+        assertFails(new byte[]{0x01, (byte) 0xC0, (byte) 0xC0, 0x10, 0x07, 0x42}, "Unknown block type 42.");
+
+        try {
+            ExecFileReader.read(write(new byte[]{0x01, (byte) 0xC0, (byte) 0xC0, 0x10, 0x06}), new ExecutionDataStore(), new SessionInfoStore());
+            fail("Should reject other format versions");
+        } catch (IncompatibleExecDataVersionException e) {
+            assertEquals(0x1006, e.getActualVersion());
+        }
+    }
+
+    private File write(byte[] content) throws IOException {
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    private void assertFails(byte[] content, String message) throws IOException {
+        try {
+            ExecFileReader.read(write(content), new ExecutionDataStore(), new SessionInfoStore());
+            fail("Should fail with: " + message);
+        } catch (IOException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExecSnapshotTest extends BaseTestClass {
+    private File snapshotFile;
+    private File first;
+    private File second;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        snapshotFile = new File(temporaryFolder.getRoot(), "snapshot/exec.snapshot");
+        first = temporaryFolder.newFile("first.exec");
+        second = temporaryFolder.newFile("second.exec");
+
+        write(first, false, data(1, "com/example/A", true, false, false));
+        write(second, false, data(2, "com/example/B", false, true), data(1, "com/example/A", false, true, false));
+    }
+
+    private static ExecutionData data(long id, String name, boolean... probes) {
+        return new ExecutionData(id, name, probes);
+    }
+
+    private static void write(File file, boolean append, ExecutionData... data) throws IOException {
+        try (OutputStream out = new FileOutputStream(file, append)) {
+            ExecutionDataWriter writer = new ExecutionDataWriter(out);
+            writer.visitSessionInfo(new SessionInfo("session", 1, 2));
+            for (ExecutionData entry : data) {
+                writer.visitClassExecution(entry);
+            }
+        }
+    }
+
+    /**
+     * Merges through the snapshot on disk, like a new build would
+     */
+    private ExecutionDataStore merge(int expectedReads, File... files) throws IOException {
+        ExecSnapshot snapshot = ExecSnapshot.load(snapshotFile, log);
+        ExecutionDataMerger merger = new ExecutionDataMerger();
+        ExecutionDataStore store = merger.loadExecutionData(new HashSet<>(Arrays.asList(files)), snapshot);
+        snapshot.save(snapshotFile);
+
+        assertEquals(expectedReads, merger.getReadFileCount());
+        assertSameData(new ExecutionDataMerger().loadExecutionData(new HashSet<>(Arrays.asList(files))), store);
+        return store;
+    }
+
+    private static void assertSameData(ExecutionDataStore expected, ExecutionDataStore actual) {
+        assertEquals(expected.getContents().size(), actual.getContents().size());
+        for (ExecutionData data : expected.getContents()) {
+            assertEquals(data.getName(), actual.get(data.getId()).getName());
+            assertArrayEquals(data.getName(), data.getProbes(), actual.get(data.getId()).getProbes());
+        }
+    }
+
+    @Test
+    public void testUnchangedFilesAreNotReadAgain() throws IOException {
+        merge(2, first, second);
+        assertTrue(snapshotFile.isFile());
+
+        ExecutionDataStore store = merge(0, first, second);
+        assertArrayEquals(new boolean[]{true, true, false}, store.get(1).getProbes());
+    }
+
+    @Test
+    public void testOnlyAppendedDataIsRead() throws IOException {
+        merge(2, first, second);
+        write(second, true, data(1, "com/example/A", false, false, true), data(3, "com/example/C", true));
+
+        ExecutionDataStore store = merge(1, first, second);
+        assertArrayEquals(new boolean[]{true, true, true}, store.get(1).getProbes());
+        assertEquals(3, store.getContents().size());
+    }
+
+    @Test
+    public void testNewFilesAreFoldedIn() throws IOException {
+        merge(1, first);
+
+        ExecutionDataStore store = merge(1, first, second);
+        assertEquals(2, store.getContents().size());
+    }
+
+    @Test
+    public void testRewrittenFileRebuildsTheSnapshot() throws IOException {
+        merge(2, first, second);
+        write(first, false, data(1, "com/example/A", false, false, false));
+        assertTrue(first.setLastModified(first.lastModified() + 10_000));
+
+        ExecutionDataStore store = merge(2, first, second);
+        assertArrayEquals(new boolean[]{false, true, false}, store.get(1).getProbes());
+    }
+
+    @Test
+    public void testFileRewrittenWithMoreDataRebuildsTheSnapshot() throws IOException {
+        merge(2, first, second);
+        write(first, false, data(4, "com/example/D", true), data(1, "com/example/A", false, false, false));
+
+        ExecutionDataStore store = merge(2, first, second);
+        assertArrayEquals(new boolean[]{false, true, false}, store.get(1).getProbes());
+    }
+
+    @Test
+    public void testRemovedFileRebuildsTheSnapshot() throws IOException {
+        merge(2, first, second);
+
+        ExecutionDataStore store = merge(1, second);
+        assertArrayEquals(new boolean[]{false, true, false}, store.get(1).getProbes());
+    }
+
+    @Test
+    public void testUnreadableSnapshotIsIgnored() throws IOException {
+        merge(2, first, second);
+        Files.write(snapshotFile.toPath(), new byte[]{0x4A, 0x43, 0x45, 0x53, 0, 0, 0, 2, 0, 0});
+
+        merge(2, first, second);
+        assertTrue(log.writtenData.stream().anyMatch(s -> s.startsWith("[debug] Ignoring unreadable exec snapshot ")));
+    }
+
+    @Test
+    public void testClassFilterAppliesWhileReading() throws IOException {
+        Set<File> files = new HashSet<>(Arrays.asList(first, second));
+        Set<String> classNames = new HashSet<>(Arrays.asList("com/example/B"));
+
+        ExecSnapshot snapshot = ExecSnapshot.load(snapshotFile, log);
+        ExecutionDataMerger merger = new ExecutionDataMerger(1, classNames);
+        ExecutionDataStore filtered = merger.loadExecutionData(files, snapshot);
+        snapshot.save(snapshotFile);
+        assertEquals(1, filtered.getContents().size());
+        assertEquals(2, merger.getSkippedEntryCount());
+        assertEquals(1, ExecSnapshot.load(snapshotFile, log).getStore().size());
+
+        merger = new ExecutionDataMerger(1, new HashSet<>(classNames));
+        assertEquals(1, merger.loadExecutionData(files, ExecSnapshot.load(snapshotFile, log)).getContents().size());
+        assertEquals(0, merger.getReadFileCount());
+    }
+
+    @Test
+    public void testOtherClassesDropTheSnapshot() throws IOException {
+        Set<File> files = new HashSet<>(Arrays.asList(first, second));
+        ExecSnapshot snapshot = ExecSnapshot.load(snapshotFile, log);
+        new ExecutionDataMerger(1, new HashSet<>(Arrays.asList("com/example/B"))).loadExecutionData(files, snapshot);
+        snapshot.save(snapshotFile);
+
+        ExecutionDataMerger merger = new ExecutionDataMerger();
+        ExecutionDataStore all = merger.loadExecutionData(files, ExecSnapshot.load(snapshotFile, log));
+        assertEquals(2, merger.getReadFileCount());
+        assertEquals(2, all.getContents().size());
+        assertArrayEquals(new boolean[]{true, true, false}, all.get(1).getProbes());
+    }
+
+    @Test
+    public void testHashClassNamesIgnoresOrder() {
+        assertEquals(0, ExecSnapshot.hashClassNames(null));
+        assertEquals(ExecSnapshot.hashClassNames(new HashSet<>(Arrays.asList("a/B", "a/C"))), ExecSnapshot.hashClassNames(new HashSet<>(Arrays.asList("a/C", "a/B"))));
+        assertNotEquals(ExecSnapshot.hashClassNames(new HashSet<>(Arrays.asList("a/B", "a/C"))), ExecSnapshot.hashClassNames(new HashSet<>(Arrays.asList("a/B"))));
+        assertNotEquals(0, ExecSnapshot.hashClassNames(new HashSet<>()));
+    }
+
+    @Test
+    public void testMojoWritesTheSnapshot() throws IOException {
+        mojo.useExecSnapshot = true;
+        mojo.execSnapshotFile = snapshotFile;
+        JacocoConsoleReporterMojo.collectedExecFilePaths.add(first);
+        JacocoConsoleReporterMojo.collectedExecFilePaths.add(second);
+
+        mojo.loadExecutionData();
+        mojo.loadExecutionData();
+
+        assertTrue(snapshotFile.isFile());
+        assertTrue(log.writtenData.contains("[debug] Exec snapshot: 0 of 2 exec files read"));
+    }
+}
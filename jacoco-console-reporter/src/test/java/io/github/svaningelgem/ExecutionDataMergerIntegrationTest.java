@@ -1,5 +1,6 @@
 package io.github.svaningelgem;
 
+import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.internal.data.CRC64;
@@ -9,7 +10,10 @@ import org.junit.Test;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.Assert.*;
@@ -122,4 +126,38 @@ public class ExecutionDataMergerIntegrationTest extends BaseTestClass {
             System.err.println("Test failed creating mock exec file: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFilteredExecutionDataGivesTheSameCoverage() throws IOException {
+        assertTrue("We need the test projects compiled files!", testProjectClasses.exists());
+        JacocoConsoleReporterMojo.collectedClassesPaths.add(testProjectClasses);
+        JacocoConsoleReporterMojo.collectedExecFilePaths.add(testProjectJacocoExec);
+        List<ClassFile> classFiles = mojo.collectClassFiles();
+        Set<String> classNames = ClassFile.classNames(classFiles);
+        assertNotNull(classNames);
+
+        ExecutionDataStore all = mojo.loadExecutionData(null);
+        ExecutionDataStore filtered = mojo.loadExecutionData(classNames);
+        assertTrue(filtered.getContents().size() < all.getContents().size());
+        assertTrue(log.writtenData.stream().anyMatch(s -> s.matches("\\[debug] Skipped [1-9][0-9]* exec entries of classes that are not analyzed")));
+
+        IBundleCoverage expected = mojo.analyzeCoverage(all, classFiles);
+        IBundleCoverage actual = mojo.analyzeCoverage(filtered, classFiles);
+        assertEquals(expected.getInstructionCounter(), actual.getInstructionCounter());
+        assertEquals(expected.getBranchCounter(), actual.getBranchCounter());
+        assertEquals(expected.getLineCounter(), actual.getLineCounter());
+        assertEquals(expected.getMethodCounter(), actual.getMethodCounter());
+        assertEquals(expected.getClassCounter(), actual.getClassCounter());
+    }
+
+    @Test
+    public void testUnknownClassNamesDisableTheFilter() {
+        List<ClassFile> classFiles = Arrays.asList(
+                new ClassFile(Paths.get("com/example/Foo.class"), "com/example/Foo"),
+                new ClassFile(Paths.get("META-INF/versions/9/com/example/Foo.class")));
+
+        assertNull(ClassFile.classNames(classFiles));
+        assertNull(JacocoConsoleReporterMojo.toClassName(Paths.get("META-INF", "versions", "9", "com", "example", "Foo.class")));
+        assertEquals("com/example/Foo$Bar", JacocoConsoleReporterMojo.toClassName(Paths.get("com", "example", "Foo$Bar.class")));
+    }
+}
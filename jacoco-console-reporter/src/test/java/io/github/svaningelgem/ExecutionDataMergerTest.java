@@ -2,14 +2,18 @@ package io.github.svaningelgem;
 
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
 import org.jacoco.core.internal.data.CRC64;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 
 import static org.junit.Assert.*;
@@ -104,4 +108,60 @@ public class ExecutionDataMergerTest extends BaseTestClass {
                     expectedProbes[i], actualProbes[i]);
         }
     }
-}
\ No newline at end of file
+
+    private File writeExecFile(int index, Random random) throws IOException {
+        File file = temporaryFolder.newFile("parallel" + index + ".exec");
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            ExecutionDataWriter writer = new ExecutionDataWriter(out);
+            writer.visitSessionInfo(new SessionInfo("session" + index, index, index + 1));
+            for (int c = 0; c < 10; c++) {
+                String className = "com/example/Class" + random.nextInt(25);
+                boolean[] probes = new boolean[8];
+                for (int p = 0; p < probes.length; p++) {
+                    probes[p] = random.nextInt(4) == 0;
+                }
+                writer.visitClassExecution(new ExecutionData(CRC64.classId(className.getBytes()), className, probes));
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void testParallelLoadingMatchesSequential() throws IOException {
+        Random random = new Random(7);
+        for (int i = 0; i < 40; i++) {
+            execFiles.add(writeExecFile(i, random));
+        }
+        execFiles.add(null);
+        execFiles.add(new File("nonexistent.exec"));
+
+        ExecutionDataMerger parallel = new ExecutionDataMerger(4);
+        ExecutionDataStore expected = merger.loadExecutionData(execFiles);
+        ExecutionDataStore actual = parallel.loadExecutionData(execFiles);
+
+        assertEquals(merger.getUniqueClassCount(), parallel.getUniqueClassCount());
+        assertEquals(expected.getContents().size(), actual.getContents().size());
+        for (ExecutionData data : expected.getContents()) {
+            assertArrayEquals(data.getName(), data.getProbes(), actual.get(data.getId()).getProbes());
+        }
+        assertEquals(40, parallel.sessionInfoStore.getInfos().size());
+    }
+
+    @Test
+    public void testParallelLoadingReportsInvalidFiles() throws IOException {
+        Random random = new Random(7);
+        for (int i = 0; i < 8; i++) {
+            execFiles.add(writeExecFile(i, random));
+        }
+        File invalidFile = temporaryFolder.newFile("invalid.exec");
+        Files.write(invalidFile.toPath(), "not a valid JaCoCo exec file".getBytes());
+        execFiles.add(invalidFile);
+
+        try {
+            new ExecutionDataMerger(4).loadExecutionData(execFiles);
+            fail("Should throw IOException for invalid file format");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+}
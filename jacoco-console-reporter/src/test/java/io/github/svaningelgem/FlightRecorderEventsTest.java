@@ -0,0 +1,23 @@
+package io.github.svaningelgem;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertSame;
+
+public class FlightRecorderEventsTest {
+    /**
+     * The tests run the Java 8 classes, which never record
+     */
+    @Test
+    public void testJava8VersionIsDisabled() {
+        try (FlightRecorderEvent.ExecFileRead event = FlightRecorderEvents.execFileRead(new File("jacoco.exec"))) {
+            event.setBytes(10);
+            event.setClasses(1);
+            assertSame(FlightRecorderEvent.DISABLED, event);
+        }
+        assertSame(FlightRecorderEvent.DISABLED, FlightRecorderEvents.classAnalysis("Example.class"));
+        assertSame(FlightRecorderEvent.DISABLED, FlightRecorderEvents.exclusionChecks("target/classes", 3));
+    }
+}
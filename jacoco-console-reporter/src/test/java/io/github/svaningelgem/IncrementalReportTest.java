@@ -0,0 +1,182 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.flow.ClassProbesVisitor;
+import org.jacoco.core.internal.flow.MethodProbesVisitor;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalReportTest extends BaseTestClass {
+    private static final String[] CLASSES = {"CoverageMetrics", "DirectoryNode", "SourceFileNode", "CoverageTreeBuilder", "CoverageTreeBuilder$SourceFileData"};
+
+    private File packageDirectory;
+
+    @Before
+    public void setUpClasses() throws IOException {
+        File classes = temporaryFolder.newFolder("classes");
+        packageDirectory = new File(classes, "io/github/svaningelgem");
+        Files.createDirectories(packageDirectory.toPath());
+        for (String className : CLASSES) {
+            copyClass(className);
+        }
+
+        JacocoConsoleReporterMojo.collectedClassesPaths.add(classes);
+        mojo.incrementalReport = true;
+        mojo.incrementalReportFile = new File(temporaryFolder.getRoot(), "state/incremental.state");
+        mojo.showFiles = true;
+        mojo.showMissingLines = true;
+    }
+
+    private void copyClass(String className) throws IOException {
+        Files.copy(new File(mainProjectClasses, "io/github/svaningelgem/" + className + ".class").toPath(), new File(packageDirectory, className + ".class").toPath());
+    }
+
+    private List<String> incremental(ExecutionDataStore store) throws IOException {
+        log.writtenData.clear();
+        assertTrue(mojo.reportIncrementally(store, mojo.collectClassFiles(), new ReportTimings()));
+        return printed();
+    }
+
+    private List<String> full(ExecutionDataStore store) throws IOException {
+        log.writtenData.clear();
+        mojo.printCoverageReport(mojo.buildDirectoryTree(mojo.analyzeCoverage(store, mojo.collectClassFiles())));
+        return printed();
+    }
+
+    private List<String> printed() {
+        List<String> printed = new ArrayList<>(log.writtenData);
+        printed.removeIf(line -> line.startsWith("[debug] "));
+        return printed;
+    }
+
+    private void assertAnalyzed(int classFiles, int total, int sourceFiles) {
+        assertTrue(log.writtenData.contains(String.format("[debug] Incremental report: analyzing %d of %d class files for %d changed source files",
+                classFiles, total, sourceFiles)));
+    }
+
+    /**
+     * Adds execution data for a class with all its probes hit
+     */
+    private void execute(ExecutionDataStore store, String className) throws IOException {
+        byte[] bytes = Files.readAllBytes(new File(packageDirectory, className + ".class").toPath());
+        int[] probeCount = new int[1];
+        new ClassReader(bytes).accept(new ClassProbesAdapter(new ClassProbesVisitor() {
+            @Override
+            public MethodProbesVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                return null;
+            }
+
+            @Override
+            public void visitTotalProbeCount(int count) {
+                probeCount[0] = count;
+            }
+        }, false), 0);
+
+        boolean[] probes = new boolean[probeCount[0]];
+        Arrays.fill(probes, true);
+        store.put(new ExecutionData(CRC64.classId(bytes), "io/github/svaningelgem/" + className, probes));
+    }
+
+    @Test
+    public void testFirstBuildMatchesTheFullReport() throws IOException {
+        ExecutionDataStore store = new ExecutionDataStore();
+        execute(store, "CoverageMetrics");
+
+        List<String> incremental = incremental(store);
+        assertAnalyzed(5, 5, 4);
+        assertEquals(full(store), incremental);
+        assertTrue(mojo.incrementalReportFile.isFile());
+    }
+
+    @Test
+    public void testUnchangedBuildAnalyzesNothing() throws IOException {
+        ExecutionDataStore store = new ExecutionDataStore();
+        List<String> first = incremental(store);
+
+        List<String> second = incremental(store);
+        assertAnalyzed(0, 5, 0);
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void testChangedExecutionDataIsPatched() throws IOException {
+        incremental(new ExecutionDataStore());
+
+        ExecutionDataStore store = new ExecutionDataStore();
+        execute(store, "CoverageTreeBuilder$SourceFileData");
+
+        List<String> incremental = incremental(store);
+        // Both classes of CoverageTreeBuilder.java
+        assertAnalyzed(2, 5, 1);
+        assertEquals(full(store), incremental);
+    }
+
+    @Test
+    public void testRemovedAndAddedClassFilesArePatched() throws IOException {
+        Files.delete(new File(packageDirectory, "SourceFileNode.class").toPath());
+        incremental(new ExecutionDataStore());
+
+        Files.delete(new File(packageDirectory, "DirectoryNode.class").toPath());
+        copyClass("SourceFileNode");
+
+        List<String> incremental = incremental(new ExecutionDataStore());
+        assertEquals(full(new ExecutionDataStore()), incremental);
+        assertTrue(incremental.stream().anyMatch(line -> line.contains("SourceFileNode.java")));
+        assertFalse(incremental.stream().anyMatch(line -> line.contains("DirectoryNode.java")));
+    }
+
+    @Test
+    public void testOtherExclusionsStartOver() throws IOException {
+        incremental(new ExecutionDataStore());
+        mojo.addExclusion("io/github/svaningelgem/DirectoryNode");
+
+        List<String> incremental = incremental(new ExecutionDataStore());
+        assertAnalyzed(4, 4, 3);
+        assertEquals(full(new ExecutionDataStore()), incremental);
+    }
+
+    @Test
+    public void testStateIsKeptWithTheSameSettings() throws IOException {
+        incremental(new ExecutionDataStore());
+
+        assertEquals(5, IncrementalReport.load(mojo.incrementalReportFile, mojo.incrementalReportSettings(true), log).size());
+        assertEquals(0, IncrementalReport.load(mojo.incrementalReportFile, mojo.incrementalReportSettings(false), log).size());
+    }
+
+    @Test
+    public void testXmlReportNeedsTheFullReport() throws IOException {
+        mojo.writeXmlReport = true;
+
+        assertFalse(mojo.reportIncrementally(new ExecutionDataStore(), mojo.collectClassFiles(), new ReportTimings()));
+        assertFalse(mojo.incrementalReportFile.exists());
+    }
+
+    @Test
+    public void testPatchRemovesSourceFilesWithoutNode() {
+        IncrementalReport report = new IncrementalReport("");
+        DirectoryNode root = report.buildTree();
+        CoverageMetrics metrics = new CoverageMetrics(1, 1, 2, 1, 10, 5, 0, 0);
+        report.patch(root, Collections.emptySet(), Collections.singletonMap("com/example/Foo.java", new SourceFileNode("Foo.java", metrics, null)));
+        assertEquals(metrics, root.getMetrics());
+
+        report.patch(root, Collections.singleton("com/example/Foo.java"), Collections.emptyMap());
+        assertEquals(new CoverageMetrics(), root.getMetrics());
+        assertEquals(new CoverageMetrics(), report.buildTree().getMetrics());
+    }
+}
@@ -1,18 +1,27 @@
 package io.github.svaningelgem;
 
+import org.apache.maven.execution.BuildFailure;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -251,6 +260,131 @@ public class JacocoConsoleReporterMojoTest extends BaseTestClass {
         assertTrue("Module should report when not deferring", hasReported);
     }
 
+    private MavenProject createModule(String artifactId) throws IOException {
+        MavenProject module = createProjectWithJacocoPlugin(new File(targetDir, artifactId + ".exec").getAbsolutePath());
+        module.setGroupId("test.group");
+        module.setArtifactId(artifactId);
+        module.setVersion("1.0.0");
+        return module;
+    }
+
+    private static void removeReporterPlugin(MavenProject module) {
+        module.getBuild().getPlugins().removeIf(plugin -> "jacoco-console-reporter".equals(plugin.getArtifactId()));
+    }
+
+    @Test
+    public void testModulesWithoutTheGoalAreNotWaitedFor() throws IOException {
+        List<MavenProject> projects = Arrays.asList(createModule("module1"), createModule("module2"), createModule("module3"));
+        removeReporterPlugin(projects.get(2));
+        mojo.mavenSession = createRealMavenSession(projects);
+        mojo.deferReporting = true;
+
+        mojo.project = projects.get(0);
+        assertFalse(mojo.shouldReport());
+        assertTrue(log.writtenData.contains("[debug] Waiting for 1 more modules before reporting"));
+        mojo.project = projects.get(1);
+        assertTrue("The last module running the goal should report", mojo.shouldReport());
+
+        log.writtenData.clear();
+        mojo.mavenSession.setParallel(true);
+        mojo.project = projects.get(1);
+        assertFalse(mojo.shouldReport());
+        assertTrue(log.writtenData.contains("[debug] Waiting for 1 more modules before reporting"));
+        mojo.project = projects.get(0);
+        assertTrue(mojo.shouldReport());
+    }
+
+    @Test
+    public void testFailedModulesAreNotWaitedFor() throws IOException {
+        List<MavenProject> projects = Arrays.asList(createModule("module1"), createModule("module2"), createModule("module3"));
+        MavenSession session = createRealMavenSession(projects);
+        session.setParallel(true);
+        session.getResult().addBuildSummary(new BuildFailure(projects.get(1), 0, new Exception("Tests failed")));
+        mojo.mavenSession = session;
+        mojo.deferReporting = true;
+
+        mojo.project = projects.get(0);
+        assertFalse(mojo.shouldReport());
+        mojo.project = projects.get(2);
+        assertTrue(mojo.shouldReport());
+    }
+
+    @Test
+    public void testCommandLineGoalWaitsForAllModules() throws IOException {
+        List<MavenProject> projects = Arrays.asList(createModule("module1"), createModule("module2"));
+        removeReporterPlugin(projects.get(1));
+        mojo.mavenSession = createRealMavenSession(projects);
+        mojo.mojoExecution = new MojoExecution(mojo.mojoExecution.getMojoDescriptor(), "default-cli", MojoExecution.Source.CLI);
+        mojo.deferReporting = true;
+
+        mojo.project = projects.get(0);
+        assertFalse(mojo.shouldReport());
+    }
+
+    @Test
+    public void testShouldReportInParallelBuild() throws IOException {
+        List<MavenProject> projects = Arrays.asList(createModule("module1"), createModule("module2"), createModule("module3"));
+        MavenSession session = createRealMavenSession(projects);
+        session.setParallel(true);
+        mojo.mavenSession = session;
+        mojo.deferReporting = true;
+
+        // The last project of the list finishes first
+        mojo.project = projects.get(2);
+        assertFalse(mojo.shouldReport());
+        mojo.project = projects.get(0);
+        assertFalse(mojo.shouldReport());
+        mojo.project = projects.get(1);
+        assertTrue("The module completing the reactor should report", mojo.shouldReport());
+
+        // Only once
+        assertFalse(mojo.shouldReport());
+
+        // A new session starts over
+        MavenSession nextSession = createRealMavenSession(Collections.singletonList(projects.get(0)));
+        nextSession.setParallel(true);
+        mojo.mavenSession = nextSession;
+        mojo.project = projects.get(0);
+        assertTrue(mojo.shouldReport());
+    }
+
+    @Test
+    public void testReactorProgressReportsOnceUnderContention() throws Exception {
+        List<String> projectIds = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            projectIds.add("test.group:module" + i + ":jar:1.0.0");
+        }
+        Object session = new Object();
+        ReactorProgress progress = new ReactorProgress();
+        AtomicInteger reports = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String projectId : projectIds) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    JacocoConsoleReporterMojo.collectedClassesPaths.add(new File(projectId));
+                    if (progress.finish(session, projectId, projectIds)) {
+                        reports.incrementAndGet();
+                        assertEquals(projectIds.size(), JacocoConsoleReporterMojo.collectedClassesPaths.size());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, reports.get());
+        assertEquals(projectIds.size(), progress.getFinishedCount());
+    }
+
     @Test
     public void testExecuteWithXmlOutputFile() throws Exception {
         if (!testProjectJacocoExec.exists() || !testProjectClasses.exists()) {
@@ -1,11 +1,26 @@
 package io.github.svaningelgem;
 
+import org.jacoco.core.analysis.IBundleCoverage;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import static io.github.svaningelgem.JacocoConsoleReporterMojo.collectedArchivePaths;
 import static io.github.svaningelgem.JacocoConsoleReporterMojo.collectedClassesPaths;
 import static io.github.svaningelgem.JacocoConsoleReporterMojo.collectedExecFilePaths;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 public class JarFileHandlingTest extends BaseTestClass {
@@ -51,4 +66,133 @@ public class JarFileHandlingTest extends BaseTestClass {
 
         assertLogContains(expected);
     }
-}
\ No newline at end of file
+
+    /**
+     * With analyzeArchives, the classes in a jar within the classes directory are reported
+     */
+    @Test
+    public void testAnalyzeArchivesInClassesDirectory() throws Exception {
+        copyResourceToFile("/sample-classes.jar", new File(classesDir, "test.jar"));
+        mojo.analyzeArchives = true;
+
+        List<ClassFile> classFiles = mojo.collectClassFiles(Collections.singletonList(classesDir));
+
+        assertEquals(2, classFiles.size());
+        assertTrue(classFiles.get(0).getLocation().endsWith("test.jar!/com/example/AdvancedCalculator.class"));
+        assertEquals("com/example/AdvancedCalculator", classFiles.get(0).getClassName());
+    }
+
+    /**
+     * A war with its own classes and a nested jar gives the same coverage as the loose class files
+     */
+    @Test
+    public void testWarWithNestedJar() throws Exception {
+        assertTrue("We need the test projects compiled files!", testProjectClasses.exists());
+        File classes = new File(testProjectClasses, "com/example");
+
+        ByteArrayOutputStream nestedJar = new ByteArrayOutputStream();
+        try (ZipOutputStream jar = new ZipOutputStream(nestedJar)) {
+            addEntry(jar, "com/example/AdvancedCalculator.class", Files.readAllBytes(new File(classes, "AdvancedCalculator.class").toPath()), false);
+        }
+
+        File war = new File(targetDir, "app.war");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(war))) {
+            addEntry(out, "WEB-INF/classes/com/example/Calculator.class", Files.readAllBytes(new File(classes, "Calculator.class").toPath()), false);
+            addEntry(out, "WEB-INF/lib/core.jar", nestedJar.toByteArray(), true);
+            addEntry(out, "index.html", "<html/>".getBytes(), false);
+        }
+
+        mojo.archives = Collections.singletonList(war);
+        mojo.nestedArchives = Collections.singletonList("core*.jar");
+        mojo.execute();
+        assertEquals(Collections.singleton(war.getAbsoluteFile()), collectedArchivePaths);
+
+        collectedExecFilePaths.clear();
+        collectedExecFilePaths.add(testProjectJacocoExec);
+        collectedClassesPaths.clear();
+
+        List<ClassFile> classFiles = mojo.collectClassFiles();
+        assertEquals(2, classFiles.size());
+        assertEquals(
+                "app.war!/WEB-INF/classes/com/example/Calculator.class, app.war!/WEB-INF/lib/core.jar!/com/example/AdvancedCalculator.class",
+                classFiles.stream()
+                        .map(classFile -> classFile.getLocation().substring(war.getParent().length() + 1))
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+
+        IBundleCoverage fromArchive = mojo.analyzeCoverage(mojo.loadExecutionData(), classFiles);
+        IBundleCoverage fromDirectory = mojo.analyzeCoverage(mojo.loadExecutionData(), mojo.collectClassFiles(Collections.singletonList(testProjectClasses)));
+
+        assertTrue(fromDirectory.getLineCounter().getCoveredCount() > 0);
+        assertEquals(fromDirectory.getInstructionCounter(), fromArchive.getInstructionCounter());
+        assertEquals(fromDirectory.getBranchCounter(), fromArchive.getBranchCounter());
+        assertEquals(fromDirectory.getLineCounter(), fromArchive.getLineCounter());
+        assertEquals(fromDirectory.getClassCounter(), fromArchive.getClassCounter());
+    }
+
+    /**
+     * Of a war only its own classes and the jars of the reactor or the configured ones are read, not the libraries
+     * or the versioned classes of a multi-release jar
+     */
+    @Test
+    public void testWarReadsOnlyApplicationClasses() throws Exception {
+        byte[] dummy = new byte[]{1, 2, 3};
+        ByteArrayOutputStream nestedJar = new ByteArrayOutputStream();
+        try (ZipOutputStream jar = new ZipOutputStream(nestedJar)) {
+            addEntry(jar, "com/example/Library.class", dummy, false);
+            addEntry(jar, "META-INF/versions/11/com/example/Library.class", dummy, false);
+        }
+
+        File war = new File(targetDir, "app.war");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(war))) {
+            addEntry(out, "WEB-INF/classes/com/example/Calculator.class", dummy, false);
+            addEntry(out, "WEB-INF/lib/test-artifact-1.0.0.jar", nestedJar.toByteArray(), true);
+            addEntry(out, "WEB-INF/lib/commons-lang3-3.14.0.jar", nestedJar.toByteArray(), true);
+            addEntry(out, "WEB-INF/lib/extra-1.0.jar", nestedJar.toByteArray(), false);
+            addEntry(out, "org/springframework/boot/loader/Launcher.class", dummy, false);
+        }
+
+        collectedArchivePaths.add(war.getAbsoluteFile());
+        assertEquals(
+                "WEB-INF/classes/com/example/Calculator.class, WEB-INF/lib/test-artifact-1.0.0.jar!/com/example/Library.class",
+                archiveLocations(war));
+
+        mojo.nestedArchives = Collections.singletonList("extra-*.jar");
+        assertEquals(
+                "WEB-INF/classes/com/example/Calculator.class, WEB-INF/lib/extra-1.0.jar!/com/example/Library.class, "
+                        + "WEB-INF/lib/test-artifact-1.0.0.jar!/com/example/Library.class",
+                archiveLocations(war));
+        assertNotNull(ClassFile.classNames(mojo.collectClassFiles()));
+    }
+
+    @Test
+    public void testIsIncludedNestedArchive() {
+        mojo.nestedArchives = Collections.singletonList("core-?.?.jar");
+        assertTrue(mojo.isIncludedNestedArchive("core-1.0.jar"));
+        assertFalse(mojo.isIncludedNestedArchive("core-1.0.1.jar"));
+        assertTrue(mojo.isIncludedNestedArchive("test-artifact-1.0.0.jar"));
+        assertTrue(mojo.isIncludedNestedArchive("test-artifact-1.0.0-classes.jar"));
+        assertFalse(mojo.isIncludedNestedArchive("test-artifact-2.0.0.jar"));
+    }
+
+    private String archiveLocations(File war) throws IOException {
+        return mojo.collectClassFiles().stream()
+                .map(classFile -> classFile.getLocation().substring(war.getAbsolutePath().length() + 2))
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private static void addEntry(ZipOutputStream out, String name, byte[] content, boolean stored) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        if (stored) {
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
+        out.putNextEntry(entry);
+        out.write(content);
+        out.closeEntry();
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.svaningelgem;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PackageDeclarationScannerTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private String scan(String content) throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return PackageDeclarationScanner.scan(file);
+    }
+
+    @Test
+    public void testPlainDeclaration() throws IOException {
+        assertEquals("io.sample", scan("package io.sample;"));
+        assertEquals("io.sample", scan("\n\n  package   io.sample ;\nclass A {}"));
+        assertEquals("io.sample", scan("package io . sample;"));
+    }
+
+    @Test
+    public void testCommentsAndByteOrderMark() throws IOException {
+        assertEquals("com.example", scan("﻿/*\n * License header; with package in it\n */\n// package wrong;\npackage com.example;"));
+        assertEquals("com.example", scan("package /* inline */ com.example;"));
+        assertEquals("com.example", scan("/** javadoc **/package com.example;"));
+    }
+
+    @Test
+    public void testAnnotatedPackageInfo() throws IOException {
+        assertEquals("com.example", scan("@Deprecated\npackage com.example;"));
+        assertEquals("com.example", scan("@javax.annotation.Generated(value = \"x)\", date = {\"(\"})\n@A(b = @B(')'))\npackage com.example;"));
+    }
+
+    @Test
+    public void testNoPackageDeclaration() throws IOException {
+        List<String> contents = Arrays.asList(
+                "",
+                "/* only a comment */",
+                "not-a-package io.sample;",
+                "import java.util.List;\npackage io.sample;",
+                "class A { String s = \"package io.sample;\"; }",
+                "package io.sample",
+                "package ;",
+                "@Unterminated(",
+                "@ package io.sample;"
+        );
+        for (String content : contents) {
+            assertNull(content, scan(content));
+        }
+    }
+
+    @Test
+    public void testDeclarationAcrossBufferBoundaries() throws IOException {
+        StringBuilder header = new StringBuilder("/*");
+        for (int i = 0; header.length() < PackageDeclarationScanner.BUFFER_SIZE - 5; i++) {
+            header.append(i % 10);
+        }
+        // Multi-byte characters make the byte and char boundaries fall apart
+        header.append("é€*/\npackage com.example.deep;");
+
+        for (int shift = 0; shift < 20; shift++) {
+            assertEquals("com.example.deep", scan(header.toString()));
+            header.insert(2, "é");
+        }
+    }
+
+    @Test
+    public void testStopsAfterDeclaration() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write("package com.example;\n".getBytes(StandardCharsets.UTF_8));
+            // Invalid UTF-8 after the declaration is never decoded
+            byte[] garbage = new byte[1 << 20];
+            Arrays.fill(garbage, (byte) 0xFF);
+            for (int i = 0; i < 8; i++) {
+                out.write(garbage);
+            }
+        }
+
+        assertEquals("com.example", PackageDeclarationScanner.scan(file));
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.svaningelgem;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelTasksTest {
+    @Test
+    public void testResolveThreads() {
+        assertEquals(3, ParallelTasks.resolveThreads(3));
+        assertEquals(Runtime.getRuntime().availableProcessors(), ParallelTasks.resolveThreads(0));
+        assertEquals(Runtime.getRuntime().availableProcessors(), ParallelTasks.resolveThreads(-1));
+    }
+
+    @Test
+    public void testResultsKeepSubmissionOrder() throws IOException {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            final int value = i;
+            tasks.add(() -> {
+                Thread.sleep((50 - value) % 5);
+                return value;
+            });
+        }
+
+        List<Integer> results = ParallelTasks.run(8, tasks);
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(Integer.valueOf(i), results.get(i));
+        }
+    }
+
+    @Test
+    public void testSingleThreadRunsOnCallingThread() throws IOException {
+        Thread caller = Thread.currentThread();
+        List<Callable<Thread>> tasks = Arrays.asList(Thread::currentThread, Thread::currentThread);
+
+        for (Thread thread : ParallelTasks.run(1, tasks)) {
+            assertEquals(caller, thread);
+        }
+    }
+
+    @Test
+    public void testIOExceptionIsPropagated() {
+        List<Callable<Integer>> tasks = Arrays.asList(() -> 1, () -> {
+            throw new IOException("boom");
+        });
+
+        try {
+            ParallelTasks.run(2, tasks);
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertEquals("boom", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCheckedExceptionIsWrapped() {
+        List<Callable<Integer>> tasks = Collections.singletonList(() -> {
+            throw new Exception("checked");
+        });
+
+        try {
+            ParallelTasks.run(1, tasks);
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("checked"));
+        }
+    }
+
+    @Test
+    public void testRuntimeExceptionIsPropagated() throws IOException {
+        List<Callable<Integer>> tasks = Arrays.asList(() -> 1, () -> {
+            throw new IllegalStateException("state");
+        });
+
+        try {
+            ParallelTasks.run(2, tasks);
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("state", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class ProbeStoreTest {
+    private static final int[] PROBE_COUNTS = {0, 1, 7, 8, 9, 63, 64, 65, 200};
+
+    private static ExecutionData randomData(Random random, int classes) {
+        int index = random.nextInt(classes);
+        boolean[] probes = new boolean[PROBE_COUNTS[index % PROBE_COUNTS.length]];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = random.nextInt(5) == 0;
+        }
+        // Ids spread over the whole range, including negative ones and zero
+        return new ExecutionData(index == 0 ? 0 : index * 0x9E3779B97F4A7C15L, "com/example/C" + index, probes);
+    }
+
+    private static void assertSameContents(ExecutionDataStore expected, ProbeStore actual) {
+        assertEquals(expected.getContents().size(), actual.size());
+        ExecutionDataStore converted = actual.toExecutionDataStore();
+        for (ExecutionData data : expected.getContents()) {
+            assertEquals(data.getName(), actual.get(data.getId()).getName());
+            assertArrayEquals(data.getName(), data.getProbes(), actual.get(data.getId()).getProbes());
+            assertArrayEquals(data.getName(), data.getProbes(), converted.get(data.getId()).getProbes());
+        }
+    }
+
+    @Test
+    public void testMergesLikeExecutionDataStore() {
+        Random random = new Random(11);
+        ExecutionDataStore expected = new ExecutionDataStore();
+        ProbeStore actual = new ProbeStore();
+
+        for (int i = 0; i < 20_000; i++) {
+            ExecutionData data = randomData(random, 3_000);
+            expected.put(new ExecutionData(data.getId(), data.getName(), data.getProbes().clone()));
+            actual.put(data);
+        }
+
+        assertSameContents(expected, actual);
+        assertNull(actual.get(42L));
+    }
+
+    @Test
+    public void testPackedProbes() {
+        Random random = new Random(12);
+        ExecutionDataStore expected = new ExecutionDataStore();
+        ProbeStore actual = new ProbeStore();
+
+        for (int i = 0; i < 2_000; i++) {
+            ExecutionData data = randomData(random, 300);
+            expected.put(data);
+
+            boolean[] probes = data.getProbes();
+            ByteBuffer packed = ByteBuffer.allocate((probes.length + 7) / 8 + 3);
+            packed.put((byte) 0x55);
+            for (int b = 0; b < (probes.length + 7) / 8; b++) {
+                int bits = 0;
+                for (int bit = 0; bit < 8 && b * 8 + bit < probes.length; bit++) {
+                    if (probes[b * 8 + bit]) {
+                        bits |= 1 << bit;
+                    }
+                }
+                packed.put((byte) bits);
+            }
+            packed.position(1);
+
+            actual.putPacked(data.getId(), data.getName(), probes.length, packed);
+            assertEquals(1 + (probes.length + 7) / 8, packed.position());
+        }
+
+        assertSameContents(expected, actual);
+    }
+
+    @Test
+    public void testPutAll() {
+        Random random = new Random(13);
+        ExecutionDataStore expected = new ExecutionDataStore();
+        ProbeStore merged = new ProbeStore();
+
+        for (int part = 0; part < 5; part++) {
+            ProbeStore partial = new ProbeStore();
+            for (int i = 0; i < 500; i++) {
+                ExecutionData data = randomData(random, 400);
+                expected.put(new ExecutionData(data.getId(), data.getName(), data.getProbes().clone()));
+                partial.put(data);
+            }
+            merged.putAll(partial);
+        }
+
+        assertSameContents(expected, merged);
+    }
+
+    @Test
+    public void testIncompatibleData() {
+        ProbeStore store = new ProbeStore();
+        store.put(new ExecutionData(1, "com/example/A", 3));
+
+        try {
+            store.put(new ExecutionData(1, "com/example/B", 3));
+            fail("Should reject another name for the same id");
+        } catch (IllegalStateException e) {
+            assertEquals("Different class names com/example/A and com/example/B for id 0000000000000001.", e.getMessage());
+        }
+
+        try {
+            store.put(new ExecutionData(1, "com/example/A", 4));
+            fail("Should reject another probe count for the same id");
+        } catch (IllegalStateException e) {
+            assertEquals("Incompatible execution data for class com/example/A with id 0000000000000001.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.svaningelgem;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReportTimingsTest extends BaseTestClass {
+    @Test
+    public void testPhaseMeasuresTimeAndCounts() throws InterruptedException {
+        ReportTimings timings = new ReportTimings();
+        try (ReportTimings.Phase phase = timings.start("load")) {
+            Thread.sleep(5);
+            phase.setFiles(2);
+            phase.setClasses(10);
+        }
+
+        ReportTimings.Phase phase = timings.getPhases().get(0);
+        assertEquals("load", phase.getName());
+        assertTrue(phase.getWallTime() >= 5_000_000);
+        assertEquals(2, phase.getFiles());
+        assertEquals(10, phase.getClasses());
+        assertEquals(0, phase.getPatterns());
+    }
+
+    @Test
+    public void testWorkerThreadsCountForThePhase() throws IOException {
+        if (ReportTimings.threadAllocatedBytes() < 0) {
+            return;
+        }
+
+        List<Callable<byte[]>> tasks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tasks.add(() -> new byte[1024 * 1024]);
+        }
+
+        ReportTimings timings = new ReportTimings();
+        try (ReportTimings.Phase ignored = timings.start("analyze")) {
+            ParallelTasks.run(4, tasks, timings);
+        }
+
+        assertTrue(timings.getPhases().get(0).getAllocatedBytes() >= 4 * 1024 * 1024);
+    }
+
+    @Test
+    public void testWorkerThreadsOfOtherTimingsDontCount() throws IOException {
+        if (ReportTimings.threadAllocatedBytes() < 0) {
+            return;
+        }
+
+        List<Callable<byte[]>> tasks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tasks.add(() -> new byte[1024 * 1024]);
+        }
+
+        ReportTimings timings = new ReportTimings();
+        ReportTimings other = new ReportTimings();
+        try (ReportTimings.Phase ignored = timings.start("analyze");
+             ReportTimings.Phase ignoredToo = other.start("analyze")) {
+            ParallelTasks.run(4, tasks, other);
+            ParallelTasks.run(4, tasks);
+        }
+
+        assertTrue(timings.getPhases().get(0).getAllocatedBytes() < 4 * 1024 * 1024);
+        assertTrue(other.getPhases().get(0).getAllocatedBytes() >= 4 * 1024 * 1024);
+    }
+
+    @Test
+    public void testJson() {
+        ReportTimings timings = new ReportTimings();
+        try (ReportTimings.Phase phase = timings.start("collect")) {
+            phase.setPatterns(3);
+        }
+        timings.start("print").close();
+
+        String json = timings.toJson();
+        assertTrue(json.startsWith("{\n  \"phases\": [\n    {\"name\": \"collect\", \"wallTimeNanos\": "));
+        assertTrue(json.contains("\"files\": 0, \"classes\": 0, \"patterns\": 3},\n    {\"name\": \"print\""));
+        assertTrue(json.endsWith("}\n  ]\n}\n"));
+    }
+
+    @Test
+    public void testPrint() {
+        ReportTimings timings = new ReportTimings();
+        timings.start("tree").close();
+        timings.print(log);
+
+        assertEquals("[info] --- report timings ---", log.writtenData.get(0));
+        assertTrue(log.writtenData.get(1).matches("\\[info] phase +wall ms +cpu ms +allocated MB +files +classes +patterns"));
+        assertTrue(log.writtenData.get(2).startsWith("[info] tree "));
+    }
+
+    @Test
+    public void testGenerateReportsWritesTimings() throws Exception {
+        addMainProjectClasses();
+        mojo.reportTimings = true;
+        mojo.reportTimingsFile = new File(temporaryFolder.getRoot(), "timings/timings.json");
+        mojo.writeXmlReport = true;
+
+        mojo.generateReports();
+
+        assertTrue(log.writtenData.contains("[info] --- report timings ---"));
+        String json = new String(Files.readAllBytes(mojo.reportTimingsFile.toPath()), StandardCharsets.UTF_8);
+        for (String phase : new String[]{"collect", "load", "analyze", "tree", "print", "xml"}) {
+            assertTrue(json.contains("\"name\": \"" + phase + "\""));
+        }
+    }
+
+    @Test
+    public void testTimingsAreOffByDefault() throws Exception {
+        addMainProjectClasses();
+        mojo.reportTimingsFile = new File(temporaryFolder.getRoot(), "timings.json");
+
+        mojo.generateReports();
+
+        assertFalse(log.writtenData.contains("[info] --- report timings ---"));
+        assertFalse(mojo.reportTimingsFile.exists());
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.svaningelgem;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StateFileTest extends BaseTestClass {
+    private static final int MAGIC = 0x4A435446;
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "nested/state.bin");
+        StateFile.write(file, MAGIC, 1, out -> out.writeUTF("content"));
+
+        assertTrue(file.isFile());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        assertEquals("content", StateFile.read(file, MAGIC, 1, "state", log, in -> in.readUTF()));
+    }
+
+    @Test
+    public void testMissingFile() {
+        assertNull(StateFile.read(new File(temporaryFolder.getRoot(), "missing.bin"), MAGIC, 1, "state", log, in -> in.readUTF()));
+        assertTrue(log.writtenData.isEmpty());
+    }
+
+    @Test
+    public void testOtherVersionIsIgnored() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "state.bin");
+        StateFile.write(file, MAGIC, 1, out -> out.writeUTF("content"));
+
+        assertNull(StateFile.read(file, MAGIC, 2, "state", log, in -> in.readUTF()));
+        assertEquals("[debug] Ignoring state from another version: " + file, log.writtenData.get(0));
+    }
+
+    @Test
+    public void testUnreadableFileIsIgnored() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "state.bin");
+        StateFile.write(file, MAGIC, 1, out -> out.writeInt(1));
+
+        assertNull(StateFile.read(file, MAGIC, 1, "state", log, in -> in.readLong()));
+        assertTrue(log.writtenData.get(0).startsWith("[debug] Ignoring unreadable state " + file + ": "));
+    }
+
+    @Test
+    public void testExistingFileIsReplaced() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "state.bin");
+        StateFile.write(file, MAGIC, 1, out -> out.writeUTF("first"));
+        StateFile.write(file, MAGIC, 1, out -> out.writeUTF("second"));
+
+        assertEquals("second", StateFile.read(file, MAGIC, 1, "state", log, in -> in.readUTF()));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+}
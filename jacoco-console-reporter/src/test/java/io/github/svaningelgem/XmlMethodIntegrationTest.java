@@ -2,7 +2,6 @@ package io.github.svaningelgem;
 
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.junit.Test;
-import org.mockito.ArgumentCaptor;
 
 import java.io.File;
 import java.lang.reflect.Method;
@@ -26,7 +25,7 @@ public class XmlMethodIntegrationTest extends BaseTestClass {
     }
 
     @Test
-    public void testGenerateReportCallsGenerateXmlReport() throws Exception {
+    public void testGenerateReportStreamsTheXmlReport() throws Exception {
         if (!testProjectJacocoExec.exists() || !testProjectClasses.exists()) {
             return;
         }
@@ -36,18 +35,16 @@ public class XmlMethodIntegrationTest extends BaseTestClass {
 //        spyMojo.jacocoExecFile = testProjectJacocoExec;
         spyMojo.classesDirectory = testProjectClasses;
         spyMojo.deferReporting = false;
+        spyMojo.writeXmlReport = true;
 
         spyMojo.setLog(log);
 
         try {
             spyMojo.execute();
 
-            ArgumentCaptor<IBundleCoverage> bundleCaptor = ArgumentCaptor.forClass(IBundleCoverage.class);
-            verify(spyMojo, times(1)).generateXmlReport(bundleCaptor.capture());
-
-            IBundleCoverage capturedBundle = bundleCaptor.getValue();
-            assertNotNull("Bundle should not be null", capturedBundle);
-
+            // The report is written while analyzing, the bundle is never built
+            verify(spyMojo, never()).generateXmlReport(any(IBundleCoverage.class));
+            assertTrue("XML file should exist after execution", mojo.xmlOutputFile.isFile());
         } catch (Exception e) {
             assertTrue("XML file should exist after execution", mojo.xmlOutputFile.exists());
         }
@@ -0,0 +1,164 @@
+package io.github.svaningelgem;
+
+import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class XmlReportWriterTest extends BaseTestClass {
+    private static String read(File file) throws IOException {
+        try (InputStream in = XmlReportWriter.isGzip(file) ? new GZIPInputStream(new FileInputStream(file)) : new FileInputStream(file)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) >= 0; ) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * The packages may come in another order, the rest of the report must be identical
+     */
+    private static List<String> normalized(String xml) {
+        List<String> parts = new ArrayList<>(Arrays.asList(xml.split("(?=<package )")));
+        String last = parts.get(parts.size() - 1);
+        int end = last.indexOf("</package>") + "</package>".length();
+        parts.set(parts.size() - 1, last.substring(0, end));
+        parts.sort(null);
+        parts.add(0, last.substring(end));
+        return parts;
+    }
+
+    private String streamedReport(String fileName) throws Exception {
+        JacocoConsoleReporterMojo.collectedClassesPaths.add(testProjectClasses);
+        addMainProjectClasses();
+        JacocoConsoleReporterMojo.collectedExecFilePaths.add(testProjectJacocoExec);
+        mojo.writeXmlReport = true;
+        mojo.xmlOutputFile = new File(temporaryFolder.getRoot(), fileName);
+
+        assertTrue(mojo.reportWithoutBundle(mojo.loadExecutionData(), mojo.collectClassFiles()));
+        assertFalse(new File(mojo.xmlOutputFile.getPath() + ".tmp").exists());
+        return read(mojo.xmlOutputFile);
+    }
+
+    @Test
+    public void testStreamedReportMatchesTheBundleReport() throws Exception {
+        String streamed = streamedReport("streamed.xml");
+
+        IBundleCoverage bundle = mojo.analyzeCoverage(mojo.loadExecutionData());
+        mojo.xmlOutputFile = new File(temporaryFolder.getRoot(), "bundle.xml");
+        mojo.generateXmlReport(bundle);
+        String expected = read(mojo.xmlOutputFile);
+
+        assertTrue(streamed.contains("<package name=\"io/github/svaningelgem\">"));
+        assertEquals(normalized(expected), normalized(streamed));
+        assertTrue(log.writtenData.contains("[info] XML report generated successfully."));
+    }
+
+    @Test
+    public void testGzippedReport() throws Exception {
+        String gzipped = streamedReport("coverage.xml.gz");
+
+        assertTrue(gzipped.startsWith("<?xml"));
+        assertTrue(gzipped.endsWith("</report>"));
+    }
+
+    @Test
+    public void testMisplacedClassIsNotExact() throws IOException {
+        Map<String, Integer> classesPerPackage = new HashMap<>();
+        classesPerPackage.put("com/example", 1);
+
+        XmlReportWriter writer = new XmlReportWriter(new ByteArrayOutputStream(), "Project", classesPerPackage);
+        writer.visitCoverage(new ClassCoverageImpl("com/example/A", 1, false));
+        assertTrue(writer.isExact());
+
+        writer.visitCoverage(new ClassCoverageImpl("com/example/B", 2, false));
+        assertFalse(writer.isExact());
+        writer.close();
+    }
+
+    @Test
+    public void testConflictingClassesAreNotExact() throws IOException {
+        XmlReportWriter writer = new XmlReportWriter(new ByteArrayOutputStream(), "Project", new HashMap<>());
+        writer.visitCoverage(new ClassCoverageImpl("com/example/A", 1, false));
+        writer.visitCoverage(new ClassCoverageImpl("com/example/A", 2, false));
+
+        assertFalse(writer.isExact());
+        writer.close();
+    }
+
+    @Test
+    public void testCountClassesPerPackage() {
+        List<ClassFile> classFiles = Arrays.asList(
+                new ClassFile(new File("A.class").toPath(), "com/example/A"),
+                new ClassFile(new File("B.class").toPath(), "com/example/B"),
+                new ClassFile(new File("C.class").toPath(), "C"));
+
+        Map<String, Integer> counts = XmlReportWriter.countClassesPerPackage(classFiles);
+        assertEquals(Integer.valueOf(2), counts.get("com/example"));
+        assertEquals(Integer.valueOf(1), counts.get(""));
+
+        assertNull(XmlReportWriter.countClassesPerPackage(Arrays.asList(new ClassFile(new File("D.class").toPath()))));
+    }
+
+    @Test
+    public void testFailedReportLeavesNoFileBehind() throws Exception {
+        JacocoConsoleReporterMojo.collectedClassesPaths.add(testProjectClasses);
+        mojo.writeXmlReport = true;
+        mojo.xmlOutputFile = new File(temporaryFolder.getRoot(), "missing/coverage.xml");
+
+        try {
+            mojo.reportWithoutBundle(new ExecutionDataStore(), mojo.collectClassFiles());
+        } catch (IOException e) {
+            // Expected: the directory doesn't exist
+        }
+        assertFalse(Files.exists(mojo.xmlOutputFile.toPath()));
+    }
+
+    @Test
+    public void testWriteFailureEndsTheAnalysis() throws Exception {
+        addMainProjectClasses();
+        List<ClassFile> classFiles = mojo.collectClassFiles();
+        boolean[] failing = {false};
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                if (failing[0]) {
+                    throw new IOException("Disk full");
+                }
+            }
+        };
+
+        XmlReportWriter writer = new XmlReportWriter(out, "test", XmlReportWriter.countClassesPerPackage(classFiles));
+        failing[0] = true;
+        try {
+            new ClassAnalysisEngine(new ExecutionDataStore(), 1, log).analyze(classFiles, writer);
+            fail("The write failure should end the analysis");
+        } catch (UncheckedIOException e) {
+            assertEquals("Disk full", e.getCause().getMessage());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.svaningelgem;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class FlightRecorderEventsJava11Test {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Packs the compiled classes into a multi-release jar, like the one that is deployed
+     */
+    private File multiReleaseJar() throws Exception {
+        Path classes = Paths.get(FlightRecorderEvent.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        assertTrue("We need the Java 11 classes!", Files.isDirectory(classes.resolve("META-INF/versions/11")));
+
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Multi-Release", "true");
+
+        File jar = temporaryFolder.newFile("reporter.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()), manifest);
+             Stream<Path> files = Files.walk(classes)) {
+            for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                out.putNextEntry(new JarEntry(classes.relativize(file).toString().replace(File.separatorChar, '/')));
+                Files.copy(file, out);
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * The Java 11 classes of the multi-release jar record the events
+     */
+    @Test
+    public void testClassAnalysisIsRecorded() throws Exception {
+        File jar = multiReleaseJar();
+        Path dump = temporaryFolder.getRoot().toPath().resolve("events.jfr");
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, ClassLoader.getPlatformClassLoader());
+             Recording recording = new Recording()) {
+            recording.enable("io.github.svaningelgem.ClassAnalysis").withoutThreshold();
+            recording.start();
+
+            Class<?> events = loader.loadClass(FlightRecorderEvents.class.getName());
+            assertNotSame(FlightRecorderEvents.class, events);
+            Class<?> classAnalysis = loader.loadClass(FlightRecorderEvent.ClassAnalysis.class.getName());
+            Object event = events.getMethod("classAnalysis", String.class).invoke(null, "com/example/Example.class");
+            classAnalysis.getMethod("setBytes", int.class).invoke(event, 1234);
+            classAnalysis.getMethod("setCached", boolean.class).invoke(event, true);
+            classAnalysis.getMethod("close").invoke(event);
+
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> recorded = RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> event.getEventType().getName().equals("io.github.svaningelgem.ClassAnalysis"))
+                .collect(Collectors.toList());
+        assertEquals(1, recorded.size());
+        assertEquals("com/example/Example.class", recorded.get(0).getString("location"));
+        assertEquals(1234, recorded.get(0).getInt("bytes"));
+        assertTrue(recorded.get(0).getBoolean("cached"));
+    }
+}